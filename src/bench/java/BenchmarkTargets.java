@@ -0,0 +1,71 @@
+import java.io.File;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import org.openqa.selenium.WebDriver;
+
+public class BenchmarkTargets implements benchmarks.HarnessTargets {
+
+    @Override
+    public Object probeBrowserAndDriver() {
+        return BrowserDiscovery.probe();
+    }
+
+    @Override
+    public Object discoverFromDiskCache() {
+        BrowserDiscovery.forget();
+        return BrowserDiscovery.discover();
+    }
+
+    @Override
+    public File labHtmlFile() {
+        return SeleniumTest.findHtmlFile().getAbsoluteFile();
+    }
+
+    @Override
+    public AutoCloseable startEmbeddedServer() throws Exception {
+        StaticFileServer server = StaticFileServer.start();
+        File htmlFile = labHtmlFile();
+        String url = server.mount("lab", htmlFile.getParentFile()) + htmlFile.getName();
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            if (connection.getResponseCode() != 200) {
+                throw new IllegalStateException("Embedded server answered " + connection.getResponseCode());
+            }
+            connection.getInputStream().readAllBytes();
+        } finally {
+            connection.disconnect();
+        }
+        return server::stop;
+    }
+
+    @Override
+    public String sharedLabUrl() throws Exception {
+        File htmlFile = labHtmlFile();
+        return StaticFileServer.shared().mount("lab", htmlFile.getParentFile()) + htmlFile.getName();
+    }
+
+    @Override
+    public WebDriver createWebDriver() {
+        return SeleniumTest.createWebDriver(BrowserDiscovery.discover());
+    }
+
+    @Override
+    public void runBrowserCheck(String checkName, WebDriver driver) {
+        DomWaiter.installErrorHook(driver);
+        check(checkName).run(new BrowserLabPage(driver));
+    }
+
+    @Override
+    public void runJsEngineCheck(String checkName) throws Exception {
+        try (JsEngineLabPage page = JsEngineLabPage.load(labHtmlFile())) {
+            check(checkName).run(page);
+        }
+    }
+
+    private static LabCheck check(String name) {
+        return BulbChecks.ALL.stream()
+            .filter(check -> check.name().equals(name))
+            .findFirst()
+            .orElseThrow(() -> new IllegalArgumentException("Unknown check " + name));
+    }
+}
@@ -0,0 +1,41 @@
+package benchmarks;
+
+import java.time.Duration;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.ui.ExpectedConditions;
+import org.openqa.selenium.support.ui.WebDriverWait;
+
+/**
+ * One warm browser session per trial, pointed at the lab page on the shared embedded server.
+ */
+@State(Scope.Benchmark)
+public class BrowserSession {
+    HarnessTargets harness;
+    WebDriver driver;
+    String labUrl;
+
+    @Setup(Level.Trial)
+    public void start() throws Exception {
+        harness = HarnessTargets.load();
+        labUrl = harness.sharedLabUrl();
+        driver = harness.createWebDriver();
+        driver.manage().timeouts().implicitlyWait(Duration.ZERO);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        driver.quit();
+    }
+
+    void load() {
+        driver.get(labUrl);
+        new WebDriverWait(driver, Duration.ofSeconds(30))
+            .until(ExpectedConditions.presenceOfElementLocated(By.tagName("body")));
+    }
+}
@@ -0,0 +1,59 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Each check's click-and-assert path on an already loaded page, in a warm browser session and in
+ * the embedded JS engine.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class CheckLatencyBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class LoadedPage {
+        @Setup(Level.Invocation)
+        public void load(BrowserSession browser) {
+            browser.load();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Engine {
+        HarnessTargets harness;
+
+        @Setup(Level.Trial)
+        public void start() {
+            harness = HarnessTargets.load();
+        }
+    }
+
+    @Param({"testCreateOnBulb", "testCreateOffBulb"})
+    public String check;
+
+    @Benchmark
+    public void browserCheck(BrowserSession browser, LoadedPage page) {
+        browser.harness.runBrowserCheck(check, browser.driver);
+    }
+
+    @Benchmark
+    public void jsEngineCheck(Engine engine) throws Exception {
+        engine.harness.runJsEngineCheck(check);
+    }
+}
@@ -0,0 +1,44 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Cold start of a browser session through the harness's driver factory. The launch flags come
+ * from LaunchProfile.selected() (-Dbrowser.launchProfile), so compare results per profile: a
+ * regression may belong to the profile rather than the harness.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DriverStartupBenchmark {
+    private HarnessTargets harness;
+
+    @Setup
+    public void setUp() {
+        harness = HarnessTargets.load();
+    }
+
+    @Benchmark
+    public void createAndQuitDriver() {
+        WebDriver driver = harness.createWebDriver();
+        try {
+            driver.getWindowHandle();
+        } finally {
+            driver.quit();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package benchmarks;
+
+import java.io.File;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * The harness lives in the default package, which named packages (and so JMH benchmarks) cannot
+ * reference. The default-package class {@code BenchmarkTargets} implements this interface and the
+ * benchmarks reach the harness through it.
+ */
+public interface HarnessTargets {
+    static HarnessTargets load() {
+        try {
+            return (HarnessTargets) Class.forName("BenchmarkTargets").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("BenchmarkTargets not found on the benchmark classpath", e);
+        }
+    }
+
+    Object probeBrowserAndDriver();
+
+    Object discoverFromDiskCache();
+
+    File labHtmlFile();
+
+    /**
+     * Starts a private embedded server, waits for the first successful GET of the lab page and
+     * returns a handle that stops the server.
+     */
+    AutoCloseable startEmbeddedServer() throws Exception;
+
+    String sharedLabUrl() throws Exception;
+
+    WebDriver createWebDriver();
+
+    void runBrowserCheck(String checkName, WebDriver driver);
+
+    void runJsEngineCheck(String checkName) throws Exception;
+}
@@ -0,0 +1,81 @@
+package benchmarks;
+
+import java.io.File;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time from "start a server" to "the lab page answers 200", for the embedded server and for the
+ * python3 http.server subprocess the harness used to launch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ServerStartupBenchmark {
+    private HarnessTargets harness;
+    private File htmlFile;
+
+    @Setup
+    public void setUp() {
+        harness = HarnessTargets.load();
+        htmlFile = harness.labHtmlFile();
+    }
+
+    @Benchmark
+    public void embeddedServer() throws Exception {
+        harness.startEmbeddedServer().close();
+    }
+
+    @Benchmark
+    public void pythonHttpServer() throws Exception {
+        int port = 20000 + ThreadLocalRandom.current().nextInt(20000);
+        Process process = new ProcessBuilder("python3", "-m", "http.server", String.valueOf(port), "--bind", "127.0.0.1")
+            .directory(htmlFile.getParentFile())
+            .redirectErrorStream(true)
+            .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+            .start();
+        try {
+            URL url = new URL("http://127.0.0.1:" + port + "/" + htmlFile.getName());
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (!answers(url)) {
+                if (System.nanoTime() > deadline || !process.isAlive()) {
+                    throw new IllegalStateException("python3 http.server did not start on port " + port);
+                }
+                Thread.sleep(10);
+            }
+        } finally {
+            process.destroy();
+            process.waitFor(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private static boolean answers(URL url) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setConnectTimeout(1000);
+            connection.setReadTimeout(1000);
+            try {
+                return connection.getResponseCode() == 200;
+            } finally {
+                connection.disconnect();
+            }
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,335 @@
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Host-wide admission control for browser launches, so that several Maven forks starting Chromium at
+ * once queue up instead of exhausting memory.
+ *
+ * <p>The number of concurrent launches is the smaller of the CPUs and the memory available to this
+ * container divided by -Dadmission.browserMemoryMb (default 512), both read from the cgroup v2
+ * {@code cpu.max} / {@code memory.max} files and /proc/meminfo; -Dadmission.maxBrowsers overrides it.
+ * Each launch slot is a lock file under ~/.cache/selenium-lab/admission (-Dadmission.dir), shared by
+ * every JVM of the user on the host. Waiters take a ticket in the queue directory and only compete for
+ * a slot once fewer waiters than there are slots are ahead of them, so launches are admitted roughly
+ * in arrival order. A slot is additionally held until the memory for one more browser is available,
+ * for at most -Dadmission.memoryWaitSeconds (default 120) counted from when the slot was taken.
+ * -Dadmission.enabled=false turns all of this off.
+ */
+public final class AdmissionControl {
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("admission.enabled", "true"));
+    private static final long BROWSER_MEMORY_BYTES = Long.getLong("admission.browserMemoryMb", 512) * 1024 * 1024;
+    private static final Duration MAX_WAIT = Duration.ofSeconds(Long.getLong("admission.maxWaitSeconds", 600));
+    private static final Duration MEMORY_WAIT = Duration.ofSeconds(Long.getLong("admission.memoryWaitSeconds", 120));
+    private static final long POLL_MILLIS = 200;
+    private static final Path CGROUP_ROOT = Paths.get("/sys/fs/cgroup");
+    private static final AtomicLong TICKETS = new AtomicLong();
+
+    private static final int SLOTS = slotCount();
+    private static final Semaphore LOCAL = new Semaphore(SLOTS, true);
+
+    private AdmissionControl() {
+    }
+
+    /**
+     * A launch slot, held until closed.
+     */
+    public static final class Permit implements AutoCloseable {
+        private final FileChannel channel;
+        private final FileLock lock;
+        private boolean closed;
+
+        private Permit(FileChannel channel, FileLock lock) {
+            this.channel = channel;
+            this.lock = lock;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (channel == null) {
+                return;
+            }
+            try {
+                lock.release();
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Error releasing launch slot: " + e.getMessage());
+            } finally {
+                LOCAL.release();
+            }
+        }
+    }
+
+    /**
+     * Waits for a launch slot and enough free memory for one more browser.
+     *
+     * @throws IOException if no slot became available within -Dadmission.maxWaitSeconds (default 600),
+     *                     or the memory did not within -Dadmission.memoryWaitSeconds (default 120)
+     */
+    public static Permit acquire() throws IOException, InterruptedException {
+        if (!ENABLED) {
+            return new Permit(null, null);
+        }
+        try (PhaseMetrics.Span span = PhaseMetrics.span("driver.admission")) {
+            long deadline = System.nanoTime() + MAX_WAIT.toNanos();
+            if (!LOCAL.tryAcquire(MAX_WAIT.toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new IOException("Timed out after " + MAX_WAIT.getSeconds() + "s waiting for a browser launch slot");
+            }
+            Permit permit;
+            try {
+                permit = acquireHostSlot(deadline);
+            } catch (IOException | InterruptedException | RuntimeException e) {
+                LOCAL.release();
+                throw e;
+            }
+            try {
+                awaitMemory();
+            } catch (IOException | InterruptedException | RuntimeException e) {
+                permit.close();
+                throw e;
+            }
+            return permit;
+        }
+    }
+
+    private static Permit acquireHostSlot(long deadline) throws IOException, InterruptedException {
+        Path directory = directory();
+        Path queue = directory.resolve("queue");
+        Files.createDirectories(queue);
+        String ticketName = String.format("%019d-%d-%d",
+            System.currentTimeMillis(), ProcessHandle.current().pid(), TICKETS.incrementAndGet());
+        Path ticket = Files.createFile(queue.resolve(ticketName));
+        boolean announced = false;
+        try {
+            while (true) {
+                int ahead = waitersAhead(queue, ticketName);
+                if (ahead < SLOTS) {
+                    for (int slot = 0; slot < SLOTS; slot++) {
+                        FileChannel channel = FileChannel.open(directory.resolve("slot-" + slot + ".lock"),
+                            StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                        FileLock lock = null;
+                        try {
+                            lock = channel.tryLock();
+                        } catch (OverlappingFileLockException e) {
+                            // Held by another thread of this JVM.
+                        } catch (IOException e) {
+                            channel.close();
+                            throw e;
+                        }
+                        if (lock != null) {
+                            return new Permit(channel, lock);
+                        }
+                        channel.close();
+                    }
+                }
+                if (!announced) {
+                    System.out.println("Waiting for a browser launch slot (" + ahead + " ahead, " + SLOTS + " slots)");
+                    announced = true;
+                }
+                if (System.nanoTime() > deadline) {
+                    throw new IOException("Timed out after " + MAX_WAIT.getSeconds() + "s waiting for a browser launch slot");
+                }
+                Thread.sleep(POLL_MILLIS);
+            }
+        } finally {
+            Files.deleteIfExists(ticket);
+        }
+    }
+
+    /**
+     * Counts the live tickets older than ours, removing those left behind by processes that died.
+     */
+    private static int waitersAhead(Path queue, String ticketName) throws IOException {
+        int ahead = 0;
+        try (DirectoryStream<Path> tickets = Files.newDirectoryStream(queue)) {
+            for (Path other : tickets) {
+                String name = other.getFileName().toString();
+                if (name.compareTo(ticketName) >= 0) {
+                    continue;
+                }
+                String[] parts = name.split("-");
+                long pid;
+                try {
+                    pid = Long.parseLong(parts[1]);
+                } catch (RuntimeException e) {
+                    Files.deleteIfExists(other);
+                    continue;
+                }
+                if (ProcessHandle.of(pid).map(ProcessHandle::isAlive).orElse(false)) {
+                    ahead++;
+                } else {
+                    Files.deleteIfExists(other);
+                }
+            }
+        }
+        return ahead;
+    }
+
+    /**
+     * Waits until {@link #availableMemory()} fits one more browser, or cannot be read.
+     */
+    private static void awaitMemory() throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + MEMORY_WAIT.toNanos();
+        boolean announced = false;
+        long available;
+        while ((available = availableMemory()) >= 0 && available < BROWSER_MEMORY_BYTES) {
+            if (System.nanoTime() > deadline) {
+                throw new IOException("Timed out after " + MEMORY_WAIT.getSeconds() + "s waiting for memory to launch a"
+                    + " browser (" + (available >> 20) + " MB available, " + (BROWSER_MEMORY_BYTES >> 20) + " MB needed)");
+            }
+            if (!announced) {
+                System.out.println("Waiting for memory before launching a browser (" + (available >> 20)
+                    + " MB available, " + (BROWSER_MEMORY_BYTES >> 20) + " MB needed)");
+                announced = true;
+            }
+            Thread.sleep(POLL_MILLIS);
+        }
+    }
+
+    private static int slotCount() {
+        Integer configured = Integer.getInteger("admission.maxBrowsers");
+        if (configured != null) {
+            return Math.max(1, configured);
+        }
+        int cpus = cpuLimit();
+        long memory = memoryLimit();
+        int byMemory = memory < 0 ? Integer.MAX_VALUE : (int) Math.min(Integer.MAX_VALUE, memory / BROWSER_MEMORY_BYTES);
+        int slots = Math.max(1, Math.min(cpus, byMemory));
+        if (ENABLED) {
+            System.out.println("Admission control: " + slots + " concurrent browser launches (" + cpus + " CPUs, "
+                + (memory < 0 ? "unknown" : (memory >> 20) + " MB") + " memory)");
+        }
+        return slots;
+    }
+
+    /**
+     * CPUs from the cgroup v2 quota if there is one, otherwise the processors visible to the JVM.
+     */
+    private static int cpuLimit() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        String[] cpuMax = readFirstLine(cgroupDirectory().resolve("cpu.max")).split("\\s+");
+        if (cpuMax.length == 2 && !"max".equals(cpuMax[0])) {
+            try {
+                double quota = Double.parseDouble(cpuMax[0]) / Double.parseDouble(cpuMax[1]);
+                return Math.max(1, Math.min(processors, (int) Math.ceil(quota)));
+            } catch (NumberFormatException e) {
+                return processors;
+            }
+        }
+        return processors;
+    }
+
+    /**
+     * Total memory available to this container: the cgroup v2 limit if set, otherwise MemTotal; -1
+     * when neither can be read (e.g. not on Linux).
+     */
+    private static long memoryLimit() {
+        long limit = parseBytes(readFirstLine(cgroupDirectory().resolve("memory.max")));
+        long total = meminfo("MemTotal:");
+        return limit < 0 ? total : (total < 0 ? limit : Math.min(limit, total));
+    }
+
+    /**
+     * Memory that could be given to a new browser right now, or -1 when it cannot be read.
+     */
+    static long availableMemory() {
+        long available = meminfo("MemAvailable:");
+        Path cgroup = cgroupDirectory();
+        long limit = parseBytes(readFirstLine(cgroup.resolve("memory.max")));
+        long current = parseBytes(readFirstLine(cgroup.resolve("memory.current")));
+        if (limit >= 0 && current >= 0) {
+            // Reclaimable page cache is charged to the cgroup but does not stand in a browser's way.
+            long inactiveFile = Math.max(0, statValue(cgroup.resolve("memory.stat"), "inactive_file"));
+            long cgroupAvailable = limit - current + inactiveFile;
+            available = available < 0 ? cgroupAvailable : Math.min(available, cgroupAvailable);
+        }
+        return available;
+    }
+
+    /**
+     * This process's cgroup v2 directory, from the "0::" line of /proc/self/cgroup.
+     */
+    private static Path cgroupDirectory() {
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc/self/cgroup"), StandardCharsets.UTF_8)) {
+                if (line.startsWith("0::")) {
+                    Path own = CGROUP_ROOT.resolve(line.substring(3).replaceFirst("^/", ""));
+                    if (Files.isRegularFile(own.resolve("memory.max")) || Files.isRegularFile(own.resolve("cpu.max"))) {
+                        return own;
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Not Linux, or cgroup v1: fall through to the root, whose files simply won't exist.
+        }
+        return CGROUP_ROOT;
+    }
+
+    private static long meminfo(String key) {
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc/meminfo"), StandardCharsets.UTF_8)) {
+                if (line.startsWith(key)) {
+                    return Long.parseLong(line.substring(key.length()).trim().split("\\s+")[0]) * 1024;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Fall through.
+        }
+        return -1;
+    }
+
+    private static long statValue(Path file, String key) {
+        try {
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            for (String line : lines) {
+                if (line.startsWith(key + " ")) {
+                    return Long.parseLong(line.substring(key.length() + 1).trim());
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Fall through.
+        }
+        return -1;
+    }
+
+    private static long parseBytes(String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String readFirstLine(Path file) {
+        try {
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            return lines.isEmpty() ? "" : lines.get(0);
+        } catch (IOException | RuntimeException e) {
+            return "";
+        }
+    }
+
+    static Path directory() {
+        String configured = System.getProperty("admission.dir");
+        if (configured != null) {
+            return Paths.get(configured);
+        }
+        return Paths.get(System.getProperty("user.home"), ".cache", "selenium-lab", "admission");
+    }
+}
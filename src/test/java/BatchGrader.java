@@ -0,0 +1,357 @@
+import java.io.File;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.ui.ExpectedConditions;
+import org.openqa.selenium.support.ui.WebDriverWait;
+
+/**
+ * Grades a directory of submissions concurrently. Every sub-directory containing a {@code Lab.js}
+ * is one submission; files it does not provide (usually {@code index.html}) come from the lab
+ * template. Concurrency is bounded by the WebDriver pool the grader leases sessions from.
+ * With the JS engine enabled a submission is graded without a browser, unless the lab uses DOM
+ * features the shim does not support.
+ */
+public class BatchGrader {
+    private final Supplier<WebDriverPool> driverPool;
+    private final File templateDirectory;
+    private final List<LabCheck> checks;
+    private final int parallelism;
+    private final boolean useJsEngine;
+
+    public BatchGrader(Supplier<WebDriverPool> driverPool, File templateDirectory, List<LabCheck> checks,
+                       int parallelism, boolean useJsEngine) {
+        this.driverPool = driverPool;
+        this.templateDirectory = templateDirectory;
+        this.checks = checks;
+        this.parallelism = parallelism;
+        this.useJsEngine = useJsEngine;
+    }
+
+    public static List<File> findSubmissions(File submissionsDirectory) {
+        File[] children = submissionsDirectory.listFiles(child -> new File(child, "Lab.js").isFile());
+        if (children == null) {
+            throw new RuntimeException("Not a readable directory: " + submissionsDirectory.getAbsolutePath());
+        }
+        Arrays.sort(children);
+        return Arrays.asList(children);
+    }
+
+    public List<SubmissionResult> gradeAll(List<File> submissions) throws InterruptedException {
+        return gradeAll(submissions, result -> {});
+    }
+
+    /**
+     * Like {@link #gradeAll(List)}, but also hands each result to {@code onResult} as soon as that
+     * submission is graded, from the grading thread and in completion order.
+     */
+    public List<SubmissionResult> gradeAll(List<File> submissions, Consumer<SubmissionResult> onResult)
+            throws InterruptedException {
+        System.out.println("\n=== GRADING " + submissions.size() + " SUBMISSIONS (parallelism " + parallelism + ") ===");
+        ExecutorService executor = Executors.newWorkStealingPool(parallelism);
+        try {
+            List<Future<SubmissionResult>> futures = new ArrayList<>();
+            for (File submission : submissions) {
+                futures.add(executor.submit(() -> {
+                    SubmissionResult result;
+                    try {
+                        result = grade(submission);
+                    } catch (Exception e) {
+                        result = SubmissionResult.error(submission, e);
+                        System.out.println(result);
+                    }
+                    onResult.accept(result);
+                    return result;
+                }));
+            }
+
+            List<SubmissionResult> results = new ArrayList<>();
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    SubmissionResult error = SubmissionResult.error(submissions.get(i), e.getCause());
+                    System.out.println(error);
+                    results.add(error);
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public SubmissionResult grade(File submission) throws Exception {
+        Map<String, String> cacheKeys = cacheKeys(submission);
+        SubmissionResult result = cachedResult(submission, cacheKeys);
+        if (result != null) {
+            for (CheckResult check : result.checks) {
+                ResultReporter.report(result.submissionId, check, null, true);
+            }
+            System.out.println(result + " (cached)");
+            return result;
+        }
+        if (useJsEngine) {
+            try {
+                result = gradeInJsEngine(submission);
+            } catch (UnsupportedDomFeatureException e) {
+                System.out.println(submission.getName() + ": JS engine cannot run this lab, grading in browser: "
+                    + e.getMessage());
+            }
+        }
+        if (result == null) {
+            result = gradeInBrowser(submission);
+        }
+        for (CheckResult check : result.checks) {
+            ResultCache.shared().store(cacheKeys.get(check.checkName), check);
+        }
+        System.out.println(result);
+        return result;
+    }
+
+    /**
+     * Keys are taken before grading, so a file edited mid-run is not cached under its new content.
+     */
+    private Map<String, String> cacheKeys(File submission) {
+        File labJs = new File(submission, "Lab.js");
+        File htmlFile = htmlFileFor(submission);
+        Map<String, String> keys = new HashMap<>();
+        for (LabCheck check : checks) {
+            keys.put(check.name(), ResultCache.shared().key(check.name(), labJs, htmlFile));
+        }
+        return keys;
+    }
+
+    /**
+     * Returns the stored result when every check has a cache entry for this exact submission.
+     */
+    private SubmissionResult cachedResult(File submission, Map<String, String> cacheKeys) {
+        List<CheckResult> results = new ArrayList<>();
+        for (LabCheck check : checks) {
+            CheckResult cached = ResultCache.shared().lookup(cacheKeys.get(check.name()));
+            if (cached == null) {
+                return null;
+            }
+            results.add(cached);
+        }
+        return new SubmissionResult(submission.getName(), submission, results, null);
+    }
+
+    private File htmlFileFor(File submission) {
+        File submittedHtml = new File(submission, "index.html");
+        return submittedHtml.isFile() ? submittedHtml : new File(templateDirectory, "index.html");
+    }
+
+    private SubmissionResult gradeInJsEngine(File submission) {
+        File htmlFile = htmlFileFor(submission);
+
+        List<CheckResult> results = new ArrayList<>();
+        for (LabCheck check : checks) {
+            CheckResult result = runCheck(check, () -> {
+                try (JsEngineLabPage page = JsEngineLabPage.load(htmlFile, submission, templateDirectory)) {
+                    check.run(page);
+                } catch (java.io.IOException e) {
+                    throw new java.io.UncheckedIOException(e);
+                }
+            });
+            results.add(result);
+        }
+        // Reported only once every check ran here; an unsupported feature sends them all to the browser.
+        for (CheckResult result : results) {
+            ResultReporter.report(submission.getName(), result, ResultReporter.JS_ENGINE, false);
+        }
+        return new SubmissionResult(submission.getName(), submission, results, null);
+    }
+
+    private SubmissionResult gradeInBrowser(File submission) throws Exception {
+        String id = submission.getName();
+        String baseUrl = StaticFileServer.shared().mount("submission-" + id, submission, templateDirectory);
+        WebDriverPool pool = driverPool.get();
+        WebDriver driver = pool.lease(Duration.ofMinutes(5));
+        BrowserConsole console = null;
+        boolean healthy = true;
+        try {
+            driver.manage().timeouts().pageLoadTimeout(TimeoutScheduler.timeout("page.load", Duration.ofSeconds(60)));
+            driver.manage().timeouts().implicitlyWait(Duration.ZERO);
+            console = BrowserConsole.attach(driver);
+            BrowserConsole pageConsole = console;
+            String pageUrl = PageInjector.urlFor(driver, baseUrl + "index.html");
+
+            List<CheckResult> results = new ArrayList<>();
+            for (int i = 0; i < checks.size(); i++) {
+                LabCheck check = checks.get(i);
+                // The pooled session may still show an earlier grading of this submission, so the
+                // first check always navigates; later ones restore the snapshot it took.
+                boolean reload = i == 0;
+                CheckResult result = runCheck(check, () -> {
+                    if (reload || !PageSnapshot.restore(driver, pageUrl)) {
+                        loadPage(driver, pageUrl);
+                    }
+                    check.run(new BrowserLabPage(driver, pageConsole));
+                }, pageConsole);
+                String pageSource = null;
+                if (!result.isPassed()) {
+                    pageSource = FailureDiagnostics.capture(driver, id + "." + check.name(), result.message,
+                        pageConsole.transcript());
+                }
+                ResultReporter.report(id, result, driver, pageSource);
+                results.add(result);
+                healthy &= !result.isError();
+            }
+            return new SubmissionResult(id, submission, results, null);
+        } finally {
+            if (console != null) {
+                console.close();
+            }
+            if (healthy) {
+                pool.release(driver);
+            } else {
+                pool.evict(driver);
+            }
+            StaticFileServer.shared().unmount("submission-" + id);
+        }
+    }
+
+    private static void loadPage(WebDriver driver, String pageUrl) {
+        long start = System.nanoTime();
+        try {
+            driver.get(pageUrl);
+            new WebDriverWait(driver, TimeoutScheduler.timeout("page.load", Duration.ofSeconds(30)))
+                .until(ExpectedConditions.presenceOfElementLocated(By.tagName("body")));
+        } catch (org.openqa.selenium.TimeoutException e) {
+            TimeoutScheduler.timedOut("page.load", System.nanoTime() - start);
+            throw e;
+        }
+        TimeoutScheduler.observe("page.load", System.nanoTime() - start);
+        DomWaiter.installErrorHook(driver);
+        PageSnapshot.capture(driver, pageUrl);
+    }
+
+    private CheckResult runCheck(LabCheck check, Runnable body) {
+        return runCheck(check, body, null);
+    }
+
+    /**
+     * @param console if given, its output is appended to the message of a failed or errored check
+     */
+    private CheckResult runCheck(LabCheck check, Runnable body, BrowserConsole console) {
+        long start = System.nanoTime();
+        try (PhaseMetrics.Span span = PhaseMetrics.span("check." + check.name())) {
+            body.run();
+            return new CheckResult(check.name(), CheckResult.Outcome.PASSED, null, elapsedMillis(start));
+        } catch (AssertionError | JsEngineLabPage.LabScriptException e) {
+            return new CheckResult(check.name(), CheckResult.Outcome.FAILED,
+                withConsole(e.getMessage(), console), elapsedMillis(start), CheckResult.isTimeout(e));
+        } catch (org.openqa.selenium.NoSuchElementException | org.openqa.selenium.TimeoutException e) {
+            return new CheckResult(check.name(), CheckResult.Outcome.FAILED,
+                withConsole(e.getMessage(), console), elapsedMillis(start), CheckResult.isTimeout(e));
+        } catch (UnsupportedDomFeatureException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            return new CheckResult(check.name(), CheckResult.Outcome.ERROR,
+                withConsole(e.toString(), console), elapsedMillis(start));
+        }
+    }
+
+    private static String withConsole(String message, BrowserConsole console) {
+        if (console == null) {
+            return message;
+        }
+        String transcript = console.transcript();
+        return transcript == null ? message : message + "\n" + transcript;
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    public static class CheckResult {
+        enum Outcome { PASSED, FAILED, ERROR }
+
+        final String checkName;
+        final Outcome outcome;
+        final String message;
+        final long durationMillis;
+        /** Whether the check ended by running into a timeout rather than on a verdict. */
+        final boolean timedOut;
+
+        CheckResult(String checkName, Outcome outcome, String message, long durationMillis) {
+            this(checkName, outcome, message, durationMillis, false);
+        }
+
+        CheckResult(String checkName, Outcome outcome, String message, long durationMillis, boolean timedOut) {
+            this.checkName = checkName;
+            this.outcome = outcome;
+            this.message = message;
+            this.durationMillis = durationMillis;
+            this.timedOut = timedOut;
+        }
+
+        /**
+         * Whether {@code failure}, or anything in its cause chain, is a WebDriver timeout.
+         */
+        static boolean isTimeout(Throwable failure) {
+            for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+                if (cause instanceof org.openqa.selenium.TimeoutException
+                    || cause instanceof org.openqa.selenium.ScriptTimeoutException) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean isPassed() {
+            return outcome == Outcome.PASSED;
+        }
+
+        boolean isError() {
+            return outcome == Outcome.ERROR;
+        }
+
+        @Override
+        public String toString() {
+            return checkName + "=" + outcome + " (" + durationMillis + " ms)"
+                + (message == null ? "" : ": " + message.split("\n", 2)[0]);
+        }
+    }
+
+    public static class SubmissionResult {
+        final String submissionId;
+        final File directory;
+        final List<CheckResult> checks;
+        final String error;
+
+        SubmissionResult(String submissionId, File directory, List<CheckResult> checks, String error) {
+            this.submissionId = submissionId;
+            this.directory = directory;
+            this.checks = checks;
+            this.error = error;
+        }
+
+        static SubmissionResult error(File directory, Throwable cause) {
+            return new SubmissionResult(directory.getName(), directory, Collections.emptyList(), String.valueOf(cause));
+        }
+
+        boolean isPassed() {
+            return error == null && checks.stream().allMatch(CheckResult::isPassed);
+        }
+
+        @Override
+        public String toString() {
+            return submissionId + ": " + (isPassed() ? "PASSED" : "FAILED")
+                + (error == null ? " " + checks : " (" + error + ")");
+        }
+    }
+}
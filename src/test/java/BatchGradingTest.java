@@ -0,0 +1,27 @@
+import java.io.File;
+import java.util.List;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class BatchGradingTest {
+
+    @Test
+    public void gradeSubmissionDirectory() throws Exception {
+        String submissionsPath = System.getProperty("grading.submissions");
+        Assumptions.assumeTrue(submissionsPath != null, "Set -Dgrading.submissions=<dir> to run batch grading");
+
+        List<File> submissions = BatchGrader.findSubmissions(new File(submissionsPath));
+        int parallelism = Integer.getInteger("driver.pool.size", 1);
+        File template = SeleniumTest.findHtmlFile().getAbsoluteFile().getParentFile();
+
+        boolean useJsEngine = "js".equalsIgnoreCase(System.getProperty("lab.engine", "browser"));
+        BatchGrader grader = new BatchGrader(SeleniumTest::sharedDriverPool, template, BulbChecks.ALL, parallelism, useJsEngine);
+        List<BatchGrader.SubmissionResult> results = grader.gradeAll(submissions);
+
+        System.out.println("\n=== BATCH GRADING SUMMARY ===");
+        long passed = results.stream().filter(BatchGrader.SubmissionResult::isPassed).count();
+        System.out.println(passed + "/" + results.size() + " submissions passed");
+        assertEquals(submissions.size(), results.size());
+    }
+}
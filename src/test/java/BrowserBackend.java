@@ -0,0 +1,57 @@
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * A way of starting a browser session for a discovered browser. Implementations are listed in
+ * META-INF/services/BrowserBackend and found with {@link ServiceLoader}. -Dbrowser.backend picks one
+ * by {@link #name()}; otherwise the first one that supports the discovered browser is used, which
+ * keeps the driver-based backends the default.
+ */
+public interface BrowserBackend {
+
+    String name();
+
+    boolean supports(BrowserConfig config);
+
+    /**
+     * Starts a session of {@code config}'s browser with {@code launchProfile}'s flags, using the
+     * profile directory {@code profile}.
+     */
+    WebDriver launch(BrowserConfig config, LaunchProfile launchProfile, Path profile);
+
+    /**
+     * Whether the sessions this backend starts can open further windows, which
+     * -Ddriver.pool.mode=tabs needs to lease tabs of one browser.
+     */
+    default boolean supportsTabs() {
+        return true;
+    }
+
+    /**
+     * Picks the backend for {@code config}, failing if it cannot run that browser or the configured
+     * pool mode.
+     */
+    static BrowserBackend forConfig(BrowserConfig config) {
+        String requested = System.getProperty("browser.backend");
+        List<String> names = new ArrayList<>();
+        for (BrowserBackend backend : ServiceLoader.load(BrowserBackend.class)) {
+            names.add(backend.name());
+            if (requested == null ? backend.supports(config) : requested.equalsIgnoreCase(backend.name())) {
+                if (!backend.supports(config)) {
+                    throw new IllegalStateException("Browser backend " + backend.name() + " cannot run " + config);
+                }
+                if (!backend.supportsTabs() && "tabs".equalsIgnoreCase(System.getProperty("driver.pool.mode"))) {
+                    throw new IllegalStateException("Browser backend " + backend.name()
+                        + " drives a single tab and cannot be used with -Ddriver.pool.mode=tabs");
+                }
+                return backend;
+            }
+        }
+        throw new IllegalStateException((requested == null
+            ? "No browser backend supports " + config
+            : "Unknown browser backend " + requested) + "; available: " + names);
+    }
+}
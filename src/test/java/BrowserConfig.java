@@ -0,0 +1,29 @@
+public class BrowserConfig {
+    final String browserType;
+    final String driverPath;
+    final String binaryPath;
+    final String driverVersion;
+    final String browserVersion;
+    
+    BrowserConfig(String browserType, String driverPath, String binaryPath) {
+        this(browserType, driverPath, binaryPath, null, null);
+    }
+    
+    BrowserConfig(String browserType, String driverPath, String binaryPath, String driverVersion, String browserVersion) {
+        this.browserType = browserType;
+        this.driverPath = driverPath;
+        this.binaryPath = binaryPath;
+        this.driverVersion = driverVersion;
+        this.browserVersion = browserVersion;
+    }
+    
+    BrowserConfig withVersions(String driverVersion, String browserVersion) {
+        return new BrowserConfig(browserType, driverPath, binaryPath, driverVersion, browserVersion);
+    }
+    
+    @Override
+    public String toString() {
+        return browserType + " (driver " + driverPath + " " + driverVersion
+            + ", binary " + binaryPath + " " + browserVersion + ")";
+    }
+}
@@ -0,0 +1,228 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.openqa.selenium.JavascriptException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.devtools.DevTools;
+import org.openqa.selenium.devtools.HasDevTools;
+import org.openqa.selenium.devtools.events.ConsoleEvent;
+import org.openqa.selenium.logging.LogEntry;
+import org.openqa.selenium.logging.LogType;
+
+/**
+ * Collects the page's console output and uncaught exceptions for one test. Over the DevTools protocol
+ * the entries arrive as events while the test runs ({@code Runtime.consoleAPICalled} and
+ * {@code Runtime.exceptionThrown}), through Selenium's DevTools or, for a {@link CdpDriver}, straight
+ * from its connection; when neither is available the browser log is read once, on failure. Only the
+ * last -Dbrowser.console.maxEntries entries (default 200) are kept, each cut to
+ * {@value #MAX_ENTRY_LENGTH} characters, so a page logging in a loop cannot exhaust the heap.
+ *
+ * <p>With -Ddriver.pool.mode=tabs the browser log is read as well: Selenium's DevTools is one session
+ * per driver, bound to a single tab, and disabling its events would stop every tab's listeners.
+ */
+public final class BrowserConsole implements AutoCloseable {
+    private static final int MAX_ENTRIES = Integer.getInteger("browser.console.maxEntries", 200);
+    private static final int MAX_ENTRY_LENGTH = 2_000;
+
+    private final WebDriver driver;
+    private final List<Runnable> detach = new ArrayList<>();
+    private final boolean live;
+    private final ArrayDeque<String> entries = new ArrayDeque<>();
+    private long dropped;
+    private volatile String uncaughtException;
+
+    private BrowserConsole(WebDriver driver, boolean live) {
+        this.driver = driver;
+        this.live = live;
+    }
+
+    /**
+     * Starts collecting from {@code driver}'s current window. Attach before navigating so that errors
+     * thrown while the page loads are captured too.
+     */
+    public static BrowserConsole attach(WebDriver driver) {
+        if (driver instanceof CdpDriver) {
+            CdpDriver cdp = (CdpDriver) driver;
+            BrowserConsole console = new BrowserConsole(driver, true);
+            try {
+                console.detach.add(cdp.onEvent("Runtime.consoleAPICalled", console::onConsoleCalled));
+                console.detach.add(cdp.onEvent("Runtime.exceptionThrown", console::onExceptionThrown));
+                cdp.send("Runtime.enable", Map.of());
+                console.detach.add(() -> cdp.send("Runtime.disable", Map.of()));
+                return console;
+            } catch (RuntimeException e) {
+                console.close();
+                System.out.println("DevTools unavailable, reading browser log on failure instead: " + e.getMessage());
+            }
+        } else if (driver instanceof HasDevTools
+            && !"tabs".equalsIgnoreCase(System.getProperty("driver.pool.mode"))) {
+            try {
+                DevTools devTools = ((HasDevTools) driver).getDevTools();
+                devTools.createSessionIfThereIsNotOne(driver.getWindowHandle());
+                BrowserConsole console = new BrowserConsole(driver, true);
+                devTools.getDomains().events().addConsoleListener(console::onConsole);
+                devTools.getDomains().events().addJavascriptExceptionListener(console::onException);
+                console.detach.add(() -> devTools.getDomains().events().disable());
+                return console;
+            } catch (RuntimeException e) {
+                System.out.println("DevTools unavailable, reading browser log on failure instead: " + e.getMessage());
+            }
+        }
+        return new BrowserConsole(driver, false);
+    }
+
+    /**
+     * Fails immediately if the page has thrown an uncaught exception since the console was attached.
+     */
+    public void failOnUncaughtException() {
+        String exception = uncaughtException;
+        if (exception != null) {
+            throw new AssertionError("Uncaught JavaScript exception on page: " + exception);
+        }
+    }
+
+    /**
+     * Adds the collected console output to {@code failure} as a suppressed exception, so it is printed
+     * with the failing test's stack trace.
+     */
+    public void attachTo(Throwable failure) {
+        List<String> snapshot = snapshot();
+        if (!snapshot.isEmpty()) {
+            failure.addSuppressed(new Transcript(snapshot, droppedCount()));
+        }
+    }
+
+    /**
+     * Returns the collected console output as text, or {@code null} if the page logged nothing.
+     */
+    public String transcript() {
+        List<String> snapshot = snapshot();
+        return snapshot.isEmpty() ? null : Transcript.format(snapshot, droppedCount());
+    }
+
+    public synchronized List<String> snapshot() {
+        if (!live && entries.isEmpty()) {
+            readBrowserLog();
+        }
+        return new ArrayList<>(entries);
+    }
+
+    private synchronized long droppedCount() {
+        return dropped;
+    }
+
+    @Override
+    public void close() {
+        for (Runnable step : detach) {
+            try {
+                step.run();
+            } catch (RuntimeException e) {
+                System.err.println("Error detaching browser console: " + e.getMessage());
+            }
+        }
+        detach.clear();
+    }
+
+    private void onConsole(ConsoleEvent event) {
+        add(event.getType() + ": " + String.join(" ", event.getMessages()));
+    }
+
+    private void onException(JavascriptException exception) {
+        if (uncaughtException == null) {
+            uncaughtException = truncate(exception.getMessage());
+        }
+        add("uncaught exception: " + exception.getMessage());
+    }
+
+    /**
+     * Handles {@code Runtime.consoleAPICalled} from a {@link CdpDriver}; the arguments are remote
+     * objects, shown by value when they have one and by description otherwise.
+     */
+    private void onConsoleCalled(Map<String, Object> params) {
+        StringBuilder message = new StringBuilder().append(params.get("type")).append(':');
+        if (params.get("args") instanceof List) {
+            for (Object arg : (List<?>) params.get("args")) {
+                message.append(' ').append(describe(arg));
+            }
+        }
+        add(message.toString());
+    }
+
+    /**
+     * Handles {@code Runtime.exceptionThrown} from a {@link CdpDriver}.
+     */
+    private void onExceptionThrown(Map<String, Object> params) {
+        Object details = params.get("exceptionDetails");
+        if (!(details instanceof Map)) {
+            return;
+        }
+        Object exception = ((Map<?, ?>) details).get("exception");
+        Object description = exception instanceof Map ? ((Map<?, ?>) exception).get("description") : null;
+        String message = String.valueOf(description != null ? description : ((Map<?, ?>) details).get("text"));
+        if (uncaughtException == null) {
+            uncaughtException = truncate(message);
+        }
+        add("uncaught exception: " + message);
+    }
+
+    private static String describe(Object remote) {
+        if (!(remote instanceof Map)) {
+            return String.valueOf(remote);
+        }
+        Map<?, ?> object = (Map<?, ?>) remote;
+        if (object.containsKey("value")) {
+            return String.valueOf(object.get("value"));
+        }
+        if (object.get("unserializableValue") != null) {
+            return String.valueOf(object.get("unserializableValue"));
+        }
+        return String.valueOf(object.get("description") != null ? object.get("description") : object.get("type"));
+    }
+
+    private void readBrowserLog() {
+        try {
+            for (LogEntry entry : driver.manage().logs().get(LogType.BROWSER)) {
+                add(entry.getLevel().getName().toLowerCase() + ": " + entry.getMessage());
+            }
+        } catch (RuntimeException e) {
+            System.out.println("Could not read browser log: " + e.getMessage());
+        }
+    }
+
+    private synchronized void add(String entry) {
+        if (entries.size() >= MAX_ENTRIES) {
+            entries.pollFirst();
+            dropped++;
+        }
+        entries.addLast(truncate(entry));
+    }
+
+    private static String truncate(String value) {
+        if (value == null || value.length() <= MAX_ENTRY_LENGTH) {
+            return value;
+        }
+        return value.substring(0, MAX_ENTRY_LENGTH) + "... (" + (value.length() - MAX_ENTRY_LENGTH) + " more chars)";
+    }
+
+    /**
+     * Carries the console output on a failing test. It has no stack trace of its own.
+     */
+    static final class Transcript extends RuntimeException {
+        Transcript(List<String> entries, long dropped) {
+            super(format(entries, dropped), null, false, false);
+        }
+
+        private static String format(List<String> entries, long dropped) {
+            StringBuilder out = new StringBuilder("Browser console");
+            if (dropped > 0) {
+                out.append(" (").append(dropped).append(" earlier entries dropped)");
+            }
+            out.append(':');
+            for (String entry : entries) {
+                out.append("\n  ").append(entry);
+            }
+            return out.toString();
+        }
+    }
+}
@@ -0,0 +1,392 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Locates the browser and driver once per JVM and persists the result to a properties file keyed by
+ * the path, modification time and size of the driver and browser binary. Later runs reuse the
+ * cached result without probing, and any change to either file invalidates it. A failed discovery
+ * is remembered for the JVM as well, and rethrown instead of probing again.
+ */
+public final class BrowserDiscovery {
+    private static final String OS_NAME = System.getProperty("os.name").toLowerCase();
+    private static final boolean IS_WINDOWS = OS_NAME.contains("windows");
+    private static final boolean IS_MAC = OS_NAME.contains("mac");
+    
+    private static final Pattern VERSION_PATTERN = Pattern.compile("(\\d+)\\.\\d+(\\.\\d+)*");
+    private static final int CACHE_FORMAT = 1;
+    
+    private static BrowserConfig discovered;
+    private static RuntimeException failure;
+    
+    private BrowserDiscovery() {
+    }
+    
+    public static synchronized BrowserConfig discover() {
+        if (discovered != null) {
+            return discovered;
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        try {
+            discovered = discoverUncached();
+        } catch (RuntimeException e) {
+            failure = e;
+            throw e;
+        }
+        return discovered;
+    }
+    
+    private static BrowserConfig discoverUncached() {
+        Path cacheFile = cacheFile();
+        BrowserConfig config = loadCached(cacheFile);
+        if (config != null) {
+            System.out.println("\n=== BROWSER AND DRIVER DETECTION (cached) ===");
+            System.out.println("Using cached discovery from " + cacheFile + ": " + config);
+        } else {
+            BrowserConfig probed = probe();
+            config = probed.withVersions(
+                readVersion(probed.driverPath),
+                probed.binaryPath == null || IS_WINDOWS ? null : readVersion(probed.binaryPath));
+            System.out.println("Driver version: " + config.driverVersion);
+            System.out.println("Browser version: " + config.browserVersion);
+            store(cacheFile, config);
+        }
+        
+        checkVersionsMatch(config);
+        return config;
+    }
+    
+    /**
+     * Drops the per-JVM result, or failure, so the next {@link #discover()} goes back to the on-disk
+     * cache.
+     */
+    static synchronized void forget() {
+        discovered = null;
+        failure = null;
+    }
+    
+    static Path cacheFile() {
+        String configured = System.getProperty("browser.discovery.cache");
+        if (configured != null) {
+            return Paths.get(configured);
+        }
+        return Paths.get(System.getProperty("user.home"), ".cache", "selenium-lab", "browser-discovery.properties");
+    }
+    
+    private static BrowserConfig loadCached(Path cacheFile) {
+        if (Boolean.getBoolean("browser.discovery.refresh") || !Files.isRegularFile(cacheFile)) {
+            return null;
+        }
+        
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(cacheFile)) {
+            properties.load(in);
+        } catch (IOException e) {
+            System.out.println("Ignoring unreadable discovery cache: " + e.getMessage());
+            return null;
+        }
+        
+        if (!String.valueOf(CACHE_FORMAT).equals(properties.getProperty("format"))
+            || !workingDirectoryKey().equals(properties.getProperty("workingDirectory"))) {
+            return null;
+        }
+        
+        String driverPath = properties.getProperty("driver.path");
+        String binaryPath = properties.getProperty("binary.path");
+        if (driverPath == null
+            || !fingerprint(driverPath).equals(properties.getProperty("driver.fingerprint"))
+            || !fingerprint(binaryPath).equals(properties.getProperty("binary.fingerprint"))) {
+            System.out.println("Browser or driver changed since last run, discovery cache invalidated");
+            return null;
+        }
+        
+        return new BrowserConfig(
+            properties.getProperty("browserType"),
+            driverPath,
+            binaryPath,
+            properties.getProperty("driver.version"),
+            properties.getProperty("binary.version"));
+    }
+    
+    private static void store(Path cacheFile, BrowserConfig config) {
+        Properties properties = new Properties();
+        properties.setProperty("format", String.valueOf(CACHE_FORMAT));
+        properties.setProperty("workingDirectory", workingDirectoryKey());
+        properties.setProperty("browserType", config.browserType);
+        properties.setProperty("driver.path", config.driverPath);
+        properties.setProperty("driver.fingerprint", fingerprint(config.driverPath));
+        properties.setProperty("binary.fingerprint", fingerprint(config.binaryPath));
+        if (config.binaryPath != null) {
+            properties.setProperty("binary.path", config.binaryPath);
+        }
+        if (config.driverVersion != null) {
+            properties.setProperty("driver.version", config.driverVersion);
+        }
+        if (config.browserVersion != null) {
+            properties.setProperty("binary.version", config.browserVersion);
+        }
+        
+        try {
+            Files.createDirectories(cacheFile.toAbsolutePath().getParent());
+            Path temp = Files.createTempFile(cacheFile.toAbsolutePath().getParent(), "browser-discovery", ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                properties.store(out, "Browser/driver discovery cache");
+            }
+            Files.move(temp, cacheFile, java.nio.file.StandardCopyOption.REPLACE_EXISTING,
+                java.nio.file.StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.out.println("Could not write discovery cache: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * The project 'driver' folder takes precedence over system drivers, so its own state is part of the
+     * key: adding or removing a driver there must trigger a fresh probe.
+     */
+    private static String workingDirectoryKey() {
+        File driverFolder = new File("driver");
+        return new File(System.getProperty("user.dir")).getAbsolutePath() + "|" + fingerprint(driverFolder.getAbsolutePath());
+    }
+    
+    private static String fingerprint(String path) {
+        if (path == null) {
+            return "default";
+        }
+        File file = new File(path);
+        if (!file.exists()) {
+            return "missing";
+        }
+        return file.getAbsolutePath() + "|" + file.lastModified() + "|" + file.length();
+    }
+    
+    /**
+     * Not used for browser binaries on Windows, where chrome.exe/msedge.exe ignore --version and
+     * open a window instead.
+     */
+    private static String readVersion(String executable) {
+        Path output = null;
+        try {
+            // Output goes to a file rather than a pipe, so a hung --version cannot block a reader and
+            // waitFor really bounds the probe.
+            output = Files.createTempFile("browser-version-", ".txt");
+            Process process = new ProcessBuilder(executable, "--version")
+                .redirectErrorStream(true)
+                .redirectOutput(output.toFile())
+                .start();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.descendants().forEach(ProcessHandle::destroyForcibly);
+                process.destroyForcibly();
+                System.out.println("Timed out reading version of " + executable);
+                return null;
+            }
+            Matcher matcher = VERSION_PATTERN.matcher(new String(Files.readAllBytes(output), StandardCharsets.UTF_8));
+            return matcher.find() ? matcher.group() : null;
+        } catch (Exception e) {
+            System.out.println("Could not read version of " + executable + ": " + e.getMessage());
+            return null;
+        } finally {
+            if (output != null) {
+                try {
+                    Files.deleteIfExists(output);
+                } catch (IOException e) {
+                    // Left in the temp directory.
+                }
+            }
+        }
+    }
+    
+    private static void checkVersionsMatch(BrowserConfig config) {
+        String driverMajor = majorVersion(config.driverVersion);
+        String browserMajor = majorVersion(config.browserVersion);
+        if (driverMajor != null && browserMajor != null && !driverMajor.equals(browserMajor)) {
+            throw new RuntimeException("Driver " + config.driverPath + " is version " + config.driverVersion
+                + " but browser " + config.binaryPath + " is version " + config.browserVersion
+                + "; install a matching driver");
+        }
+    }
+    
+    private static String majorVersion(String version) {
+        if (version == null) {
+            return null;
+        }
+        Matcher matcher = VERSION_PATTERN.matcher(version);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+    
+    static BrowserConfig probe() {
+        System.out.println("\n=== BROWSER AND DRIVER DETECTION ===");
+        
+        BrowserConfig projectDriverConfig = checkProjectDriverFolder();
+        if (projectDriverConfig != null) {
+            return projectDriverConfig;
+        }
+        
+        BrowserConfig systemDriverConfig = checkSystemDrivers();
+        if (systemDriverConfig != null) {
+            return systemDriverConfig;
+        }
+        
+        throw new RuntimeException("No compatible browser driver found");
+    }
+    
+    private static BrowserConfig checkProjectDriverFolder() {
+        File driverFolder = new File("driver");
+        if (!driverFolder.exists() || !driverFolder.isDirectory()) {
+            System.out.println("No 'driver' folder found in project root");
+            return null;
+        }
+        
+        System.out.println("Found 'driver' folder, checking for executables...");
+        
+        String[] edgeDriverNames = IS_WINDOWS ? 
+            new String[]{"msedgedriver.exe", "edgedriver.exe"} :
+            new String[]{"msedgedriver", "edgedriver"};
+            
+        for (String driverName : edgeDriverNames) {
+            File driverFile = new File(driverFolder, driverName);
+            if (driverFile.exists()) {
+                makeExecutable(driverFile);
+                if (driverFile.canExecute()) {
+                    System.out.println("Found Edge driver: " + driverFile.getAbsolutePath());
+                    return new BrowserConfig("edge", driverFile.getAbsolutePath(), findEdgeBinary());
+                }
+            }
+        }
+        
+        String[] chromeDriverNames = IS_WINDOWS ? 
+            new String[]{"chromedriver.exe"} :
+            new String[]{"chromedriver"};
+            
+        for (String driverName : chromeDriverNames) {
+            File driverFile = new File(driverFolder, driverName);
+            if (driverFile.exists()) {
+                makeExecutable(driverFile);
+                if (driverFile.canExecute()) {
+                    System.out.println("Found Chrome driver: " + driverFile.getAbsolutePath());
+                    return new BrowserConfig("chrome", driverFile.getAbsolutePath(), findChromeBinary());
+                }
+            }
+        }
+        
+        System.out.println("No compatible drivers found in 'driver' folder");
+        return null;
+    }
+    
+    private static BrowserConfig checkSystemDrivers() {
+        System.out.println("Checking system-installed drivers...");
+        
+        String[] chromeDriverPaths = {
+            "/usr/bin/chromedriver",
+            "/usr/local/bin/chromedriver",
+            "/snap/bin/chromedriver",
+            System.getProperty("user.home") + "/.cache/selenium/chromedriver/linux64/chromedriver",
+            "/opt/chromedriver/chromedriver"
+        };
+        
+        if (IS_WINDOWS) {
+            chromeDriverPaths = new String[]{
+                "C:\\Program Files\\Google\\Chrome\\Application\\chromedriver.exe",
+                "C:\\ChromeDriver\\chromedriver.exe",
+                "chromedriver.exe"
+            };
+        }
+        
+        for (String driverPath : chromeDriverPaths) {
+            File driverFile = new File(driverPath);
+            if (driverFile.exists() && driverFile.canExecute()) {
+                System.out.println("Found system Chrome driver: " + driverPath);
+                return new BrowserConfig("chrome", driverPath, findChromeBinary());
+            }
+        }
+        
+        if (IS_WINDOWS) {
+            String[] edgeDriverPaths = {
+                "C:\\Program Files (x86)\\Microsoft\\Edge\\Application\\msedgedriver.exe",
+                "msedgedriver.exe"
+            };
+            
+            for (String driverPath : edgeDriverPaths) {
+                File driverFile = new File(driverPath);
+                if (driverFile.exists() && driverFile.canExecute()) {
+                    System.out.println("Found system Edge driver: " + driverPath);
+                    return new BrowserConfig("edge", driverPath, findEdgeBinary());
+                }
+            }
+        }
+        
+        return null;
+    }
+    
+    private static String findChromeBinary() {
+        String[] chromePaths;
+        
+        if (IS_WINDOWS) {
+            chromePaths = new String[]{
+                "C:\\Program Files\\Google\\Chrome\\Application\\chrome.exe",
+                "C:\\Program Files (x86)\\Google\\Chrome\\Application\\chrome.exe"
+            };
+        } else if (IS_MAC) {
+            chromePaths = new String[]{
+                "/Applications/Google Chrome.app/Contents/MacOS/Google Chrome"
+            };
+        } else {
+            chromePaths = new String[]{
+                "/usr/bin/chromium-browser",
+                "/usr/bin/chromium",
+                "/usr/bin/google-chrome",
+                "/snap/bin/chromium"
+            };
+        }
+        
+        for (String path : chromePaths) {
+            if (new File(path).exists()) {
+                System.out.println("Found Chrome binary: " + path);
+                return path;
+            }
+        }
+        
+        System.out.println("Chrome binary not found, using default");
+        return null;
+    }
+    
+    private static String findEdgeBinary() {
+        if (IS_WINDOWS) {
+            String[] edgePaths = {
+                "C:\\Program Files (x86)\\Microsoft\\Edge\\Application\\msedge.exe",
+                "C:\\Program Files\\Microsoft\\Edge\\Application\\msedge.exe"
+            };
+            
+            for (String path : edgePaths) {
+                if (new File(path).exists()) {
+                    System.out.println("Found Edge binary: " + path);
+                    return path;
+                }
+            }
+        }
+        
+        System.out.println("Edge binary not found, using default");
+        return null;
+    }
+    
+    private static void makeExecutable(File file) {
+        if (!file.canExecute()) {
+            try {
+                file.setExecutable(true);
+                System.out.println("Made executable: " + file.getAbsolutePath());
+            } catch (Exception e) {
+                System.out.println("Could not make executable: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+import java.time.Duration;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+public class BrowserLabPage implements LabPage {
+    private final WebDriver driver;
+    private final BrowserConsole console;
+
+    public BrowserLabPage(WebDriver driver) {
+        this(driver, null);
+    }
+
+    /**
+     * @param console if given, scripts fail fast once the page has thrown an uncaught exception
+     */
+    public BrowserLabPage(WebDriver driver, BrowserConsole console) {
+        this.driver = driver;
+        this.console = console;
+    }
+
+    public WebDriver getDriver() {
+        return driver;
+    }
+
+    @Override
+    public Object executeAsyncScript(String script, Duration timeout, Object... args) {
+        if (console != null) {
+            console.failOnUncaughtException();
+        }
+        driver.manage().timeouts().scriptTimeout(timeout.plusSeconds(5));
+        Object result = ((JavascriptExecutor) driver).executeAsyncScript(script, args);
+        if (console != null) {
+            console.failOnUncaughtException();
+        }
+        return result;
+    }
+}
@@ -0,0 +1,272 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Tears browsers down off the test's critical path. {@link #reap(WebDriver)} returns immediately; a
+ * background thread quits the session, kills whatever is left of the browser process tree, and
+ * deletes the session's profile directory. Profile directories left behind by crashed runs are swept
+ * when the reaper starts and again at JVM exit.
+ *
+ * <p>A profile directory is claimed from the moment {@link #newProfileDirectory()} creates it: it is
+ * pending in this JVM until the session using it is registered or the directory is reaped, and it
+ * holds an owner file with this JVM's pid, so sweeps in other JVMs leave it alone while the owner is
+ * alive. Unclaimed directories younger than -Dreaper.graceSeconds (default 300) are left alone too.
+ */
+public final class BrowserReaper {
+    static final String PROFILE_PREFIX = "browser-test-";
+    private static final Path PROFILE_ROOT = Paths.get(System.getProperty("java.io.tmpdir"));
+    private static final long SHUTDOWN_GRACE_SECONDS = 15;
+    private static final String OWNER_FILE = ".lab-owner";
+    private static final long SWEEP_GRACE_MILLIS = Long.getLong("reaper.graceSeconds", 300L) * 1000;
+    private static final long OWN_PID = ProcessHandle.current().pid();
+
+    private static final Map<WebDriver, Path> PROFILES = Collections.synchronizedMap(new IdentityHashMap<>());
+    private static final Set<Path> PENDING = ConcurrentHashMap.newKeySet();
+    private static final ExecutorService REAPER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "browser-reaper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        REAPER.execute(BrowserReaper::sweepOrphans);
+        Runtime.getRuntime().addShutdownHook(new Thread(BrowserReaper::drainAndSweep, "browser-reaper-shutdown"));
+    }
+
+    private BrowserReaper() {
+    }
+
+    /**
+     * Creates a uniquely named profile directory that the orphan sweep recognises, claimed by this JVM
+     * until it is {@link #register registered} with its session or {@link #reap(Path) reaped}.
+     */
+    public static Path newProfileDirectory() throws IOException {
+        Path profile = Files.createTempDirectory(PROFILE_ROOT, PROFILE_PREFIX);
+        PENDING.add(profile);
+        try {
+            Files.write(profile.resolve(OWNER_FILE), String.valueOf(OWN_PID).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            PENDING.remove(profile);
+            deleteRecursively(profile);
+            throw e;
+        }
+        return profile;
+    }
+
+    /**
+     * Associates a profile directory with the session that uses it, so reaping the session also
+     * removes the directory.
+     */
+    public static void register(WebDriver driver, Path profileDirectory) {
+        PROFILES.put(driver, profileDirectory);
+        PENDING.remove(profileDirectory);
+    }
+
+    public static void reap(WebDriver driver) {
+        Path profile = PROFILES.remove(driver);
+        submit(() -> {
+            try (PhaseMetrics.Span span = PhaseMetrics.span("reaper.quit")) {
+                driver.quit();
+            } catch (Exception e) {
+                System.err.println("Error quitting WebDriver: " + e.getMessage());
+            }
+            if (profile != null) {
+                reapProfile(profile);
+            }
+        });
+    }
+
+    /**
+     * Removes a profile directory whose browser never came up, e.g. when driver creation failed.
+     */
+    public static void reap(Path profileDirectory) {
+        submit(() -> {
+            reapProfile(profileDirectory);
+            PENDING.remove(profileDirectory);
+        });
+    }
+
+    private static void submit(Runnable task) {
+        try {
+            REAPER.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+    }
+
+    private static void reapProfile(Path profile) {
+        try (PhaseMetrics.Span span = PhaseMetrics.span("reaper.profile")) {
+            for (ProcessHandle process : processesUsing(profile)) {
+                killTree(process);
+            }
+            deleteRecursively(profile);
+        }
+    }
+
+    private static void drainAndSweep() {
+        REAPER.shutdown();
+        try {
+            if (!REAPER.awaitTermination(SHUTDOWN_GRACE_SECONDS, TimeUnit.SECONDS)) {
+                System.err.println("Browser reaper did not finish within " + SHUTDOWN_GRACE_SECONDS + "s");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Sessions still being set up at exit will never be registered.
+        PENDING.clear();
+        sweepOrphans();
+    }
+
+    /**
+     * Deletes profile directories that no live browser is using, and kills browsers whose owning
+     * driver process has died. Browsers still driven by another live JVM are left alone.
+     */
+    static synchronized void sweepOrphans() {
+        List<Path> profiles = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(PROFILE_ROOT, PROFILE_PREFIX + "*")) {
+            for (Path path : stream) {
+                if (Files.isDirectory(path) && !PROFILES.containsValue(path) && !PENDING.contains(path)
+                    && !isClaimed(path)) {
+                    profiles.add(path);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Could not scan for orphaned browser profiles: " + e.getMessage());
+            return;
+        }
+
+        int swept = 0;
+        for (Path profile : profiles) {
+            List<ProcessHandle> users = processesUsing(profile);
+            List<ProcessHandle> roots = new ArrayList<>();
+            for (ProcessHandle process : users) {
+                if (process.parent().filter(users::contains).isEmpty()) {
+                    roots.add(process);
+                }
+            }
+            if (!roots.stream().allMatch(BrowserReaper::isOrphaned)) {
+                continue;
+            }
+            for (ProcessHandle root : roots) {
+                killTree(root);
+                root.parent().filter(BrowserReaper::isDriver).ifPresent(ProcessHandle::destroyForcibly);
+            }
+            if (deleteRecursively(profile)) {
+                swept++;
+            }
+        }
+        if (swept > 0) {
+            System.out.println("Swept " + swept + " orphaned browser profile(s) from " + PROFILE_ROOT);
+        }
+    }
+
+    /**
+     * Whether another live JVM owns {@code profile}, or it is too new to tell: the owner file is
+     * written just after the directory is created, and older runs did not write one at all.
+     */
+    private static boolean isClaimed(Path profile) {
+        try {
+            long owner = Long.parseLong(new String(Files.readAllBytes(profile.resolve(OWNER_FILE)),
+                StandardCharsets.UTF_8).trim());
+            if (owner != OWN_PID) {
+                return ProcessHandle.of(owner).map(ProcessHandle::isAlive).orElse(false);
+            }
+            return false;
+        } catch (IOException | NumberFormatException e) {
+            try {
+                return System.currentTimeMillis() - Files.getLastModifiedTime(profile).toMillis() < SWEEP_GRACE_MILLIS;
+            } catch (IOException unreadable) {
+                return true;
+            }
+        }
+    }
+
+    static List<ProcessHandle> processesUsing(Path profile) {
+        String flag = "--user-data-dir=" + profile;
+        List<ProcessHandle> users = new ArrayList<>();
+        ProcessHandle.allProcesses().forEach(process -> {
+            Optional<String[]> arguments = process.info().arguments();
+            if (arguments.isPresent()) {
+                for (String argument : arguments.get()) {
+                    if (argument.equals(flag)) {
+                        users.add(process);
+                        break;
+                    }
+                }
+            }
+        });
+        return users;
+    }
+
+    /**
+     * A browser is orphaned once nothing drives it any more: its parent has exited (or it was
+     * re-parented to init), or its parent is a driver process that has itself been orphaned by a
+     * crashed JVM.
+     */
+    private static boolean isOrphaned(ProcessHandle browser) {
+        Optional<ProcessHandle> parent = browser.parent().filter(ProcessHandle::isAlive);
+        if (parent.isEmpty() || parent.get().pid() <= 1) {
+            return true;
+        }
+        if (!isDriver(parent.get())) {
+            return false;
+        }
+        Optional<ProcessHandle> owner = parent.get().parent().filter(ProcessHandle::isAlive);
+        return owner.isEmpty() || owner.get().pid() <= 1;
+    }
+
+    private static boolean isDriver(ProcessHandle process) {
+        String command = process.info().command().orElse("").toLowerCase();
+        return command.contains("chromedriver") || command.contains("msedgedriver");
+    }
+
+    private static void killTree(ProcessHandle process) {
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+    }
+
+    static boolean deleteRecursively(Path root) {
+        if (!Files.exists(root)) {
+            return true;
+        }
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                    Files.deleteIfExists(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path directory, IOException e) throws IOException {
+                    Files.deleteIfExists(directory);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            return true;
+        } catch (IOException e) {
+            System.err.println("Could not delete browser profile " + root + ": " + e.getMessage());
+            return false;
+        }
+    }
+}
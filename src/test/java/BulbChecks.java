@@ -0,0 +1,22 @@
+import java.util.List;
+
+public final class BulbChecks {
+    public static final LabCheck CREATE_ON_BULB = LabCheck.of("testCreateOnBulb", page -> new DomExpectations()
+        .exists("h2", "Lightbulb 1")
+        .textContains("p", "The bulb is", "on")
+        .textNotContains("p", "The bulb is", "off")
+        .afterClick(page, "onBulb")
+        .assertAllPassed());
+
+    public static final LabCheck CREATE_OFF_BULB = LabCheck.of("testCreateOffBulb", page -> new DomExpectations()
+        .exists("h2", "Lightbulb 1")
+        .textContains("p", "The bulb is", "off")
+        .textNotContains("p", "The bulb is", "on")
+        .afterClick(page, "offBulb")
+        .assertAllPassed());
+
+    public static final List<LabCheck> ALL = List.of(CREATE_ON_BULB, CREATE_OFF_BULB);
+
+    private BulbChecks() {
+    }
+}
@@ -0,0 +1,237 @@
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.chromium.HasCdp;
+
+/**
+ * Load mode for the bulb lab: clicks the on and off buttons alternately {@code clicks} times and
+ * reports throughput, per-click latency, layout and script time and JS heap growth, then checks that
+ * every "Lightbulb N" title and description is still right at that scale.
+ *
+ * <p>In {@link Mode#SCRIPT} mode the clicks run inside the page in batches of {@code batchSize} per
+ * driver round-trip and latency is measured in the page; this mode also runs in the JS engine. In
+ * {@link Mode#NATIVE} mode every click is a WebDriver click and latency includes the round-trip.
+ * Layout, script and heap figures come from the DevTools {@code Performance} domain when the browser
+ * offers it, and are left out otherwise.
+ */
+public class BulbLoad {
+    public enum Mode { SCRIPT, NATIVE }
+
+    private static final String CLICK_BATCH =
+        "var first = arguments[0], count = arguments[1];"
+        + "var done = arguments[arguments.length - 1];"
+        + "var now = typeof performance !== 'undefined' ? function () { return performance.now(); } : Date.now;"
+        + "var on = document.getElementById('onBulb'), off = document.getElementById('offBulb');"
+        + "if (on === null || off === null) { done({error: 'onBulb/offBulb buttons not found'}); return; }"
+        + "var times = [];"
+        + "for (var i = 0; i < count; i++) {"
+        + "  var start = now();"
+        + "  ((first + i) % 2 === 0 ? on : off).click();"
+        + "  times.push(now() - start);"
+        + "}"
+        + "done({times: times, error: window.__labErrors && window.__labErrors.length ? window.__labErrors[0] : null});";
+
+    private static final String VERIFY =
+        "var count = arguments[0];"
+        + "var done = arguments[arguments.length - 1];"
+        + "var container = document.getElementById('container');"
+        + "if (container === null) { done('#container not found'); return; }"
+        + "var titles = container.querySelectorAll('h2'), texts = container.querySelectorAll('p');"
+        + "if (titles.length !== count || texts.length !== count) {"
+        + "  done('expected ' + count + ' titles and descriptions, found ' + titles.length + ' and ' + texts.length);"
+        + "  return;"
+        + "}"
+        + "for (var i = 0; i < count; i++) {"
+        + "  var title = (titles[i].textContent || '').trim(), text = texts[i].textContent || '';"
+        + "  var state = i % 2 === 0 ? 'on' : 'off';"
+        + "  if (title !== 'Lightbulb ' + (i + 1)) { done('bulb ' + (i + 1) + ' has title \\'' + title + '\\''); return; }"
+        + "  if (text.indexOf('The bulb is ' + state) < 0) {"
+        + "    done('bulb ' + (i + 1) + ' should be ' + state + ' but reads \\'' + text.trim() + '\\''); return;"
+        + "  }"
+        + "}"
+        + "done(null);";
+
+    private static final List<String> PERFORMANCE_METRICS = List.of(
+        "JSHeapUsedSize", "Nodes", "LayoutCount", "LayoutDuration", "RecalcStyleDuration", "ScriptDuration");
+
+    private final int clicks;
+    private final Mode mode;
+    private final int batchSize;
+
+    public BulbLoad(int clicks, Mode mode, int batchSize) {
+        if (clicks < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("Clicks and batch size must be at least 1");
+        }
+        this.clicks = clicks;
+        this.mode = mode;
+        this.batchSize = batchSize;
+    }
+
+    public static BulbLoad fromSystemProperties() {
+        return new BulbLoad(
+            Integer.getInteger("load.clicks", 1_000),
+            Mode.valueOf(System.getProperty("load.mode", "script").toUpperCase(Locale.ROOT)),
+            Integer.getInteger("load.batchSize", 500));
+    }
+
+    /**
+     * Runs the load against a freshly loaded lab page.
+     */
+    public Report run(LabPage page) {
+        WebDriver driver = page instanceof BrowserLabPage ? ((BrowserLabPage) page).getDriver() : null;
+        if (mode == Mode.NATIVE && driver == null) {
+            throw new IllegalArgumentException("Native clicks need a browser; use -Dload.mode=script in the JS engine");
+        }
+        HasCdp cdp = driver instanceof HasCdp ? (HasCdp) driver : null;
+        if (cdp != null) {
+            try {
+                cdp.executeCdpCommand("Performance.enable", Map.of());
+            } catch (RuntimeException e) {
+                System.out.println("Could not enable DevTools performance metrics: " + e.getMessage());
+                cdp = null;
+            }
+        }
+
+        Map<String, Double> before = performanceMetrics(cdp);
+        long start = System.nanoTime();
+        double[] latencies = mode == Mode.SCRIPT ? clickInPage(page) : clickNatively(driver);
+        long elapsed = System.nanoTime() - start;
+        Map<String, Double> after = performanceMetrics(cdp);
+
+        String problem = (String) page.executeAsyncScript(VERIFY, DomWaiter.DEFAULT_TIMEOUT, clicks);
+        return new Report(mode, latencies, elapsed, before, after, problem);
+    }
+
+    private double[] clickInPage(LabPage page) {
+        double[] latencies = new double[clicks];
+        for (int first = 0; first < clicks; first += batchSize) {
+            int count = Math.min(batchSize, clicks - first);
+            Object raw = page.executeAsyncScript(CLICK_BATCH, DomWaiter.DEFAULT_TIMEOUT, first, count);
+            Map<?, ?> batch = raw instanceof Map ? (Map<?, ?>) raw : Map.of();
+            if (batch.get("error") != null) {
+                throw new AssertionError("JavaScript error on page after " + first + " clicks: " + batch.get("error"));
+            }
+            List<?> times = batch.get("times") instanceof List ? (List<?>) batch.get("times") : List.of();
+            for (int i = 0; i < times.size(); i++) {
+                latencies[first + i] = ((Number) times.get(i)).doubleValue();
+                PhaseMetrics.record("load.click.script", (long) (latencies[first + i] * 1_000_000));
+            }
+        }
+        return latencies;
+    }
+
+    private double[] clickNatively(WebDriver driver) {
+        WebElement on = driver.findElement(By.id("onBulb"));
+        WebElement off = driver.findElement(By.id("offBulb"));
+        double[] latencies = new double[clicks];
+        for (int i = 0; i < clicks; i++) {
+            long start = System.nanoTime();
+            (i % 2 == 0 ? on : off).click();
+            long nanos = System.nanoTime() - start;
+            latencies[i] = nanos / 1e6;
+            PhaseMetrics.record("load.click.native", nanos);
+        }
+        return latencies;
+    }
+
+    /**
+     * Collects garbage first, so heap growth reflects what the page retains rather than what it has
+     * not yet freed.
+     */
+    private static Map<String, Double> performanceMetrics(HasCdp cdp) {
+        Map<String, Double> metrics = new LinkedHashMap<>();
+        if (cdp == null) {
+            return metrics;
+        }
+        try {
+            cdp.executeCdpCommand("HeapProfiler.collectGarbage", Map.of());
+            Object raw = cdp.executeCdpCommand("Performance.getMetrics", Map.of()).get("metrics");
+            for (Object entry : raw instanceof List ? (List<?>) raw : List.of()) {
+                Map<?, ?> metric = (Map<?, ?>) entry;
+                if (PERFORMANCE_METRICS.contains(metric.get("name"))) {
+                    metrics.put((String) metric.get("name"), ((Number) metric.get("value")).doubleValue());
+                }
+            }
+        } catch (RuntimeException e) {
+            System.out.println("Could not read DevTools performance metrics: " + e.getMessage());
+        }
+        return metrics;
+    }
+
+    public static class Report {
+        final Mode mode;
+        final double[] sortedLatencies;
+        final long elapsedNanos;
+        final Map<String, Double> before;
+        final Map<String, Double> after;
+        final String problem;
+
+        Report(Mode mode, double[] latencies, long elapsedNanos, Map<String, Double> before,
+               Map<String, Double> after, String problem) {
+            this.mode = mode;
+            this.sortedLatencies = latencies.clone();
+            Arrays.sort(this.sortedLatencies);
+            this.elapsedNanos = elapsedNanos;
+            this.before = before;
+            this.after = after;
+            this.problem = problem;
+        }
+
+        public int clicks() {
+            return sortedLatencies.length;
+        }
+
+        public double clicksPerSecond() {
+            return clicks() / (elapsedNanos / 1e9);
+        }
+
+        public double latencyMillis(double quantile) {
+            int index = (int) Math.ceil(quantile * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(0, Math.min(sortedLatencies.length - 1, index))];
+        }
+
+        /**
+         * @return the change in a DevTools performance metric over the run, or {@code null} without DevTools
+         */
+        public Double delta(String metric) {
+            if (!before.containsKey(metric) || !after.containsKey(metric)) {
+                return null;
+            }
+            return after.get(metric) - before.get(metric);
+        }
+
+        public void assertTitlesCorrect() {
+            if (problem != null) {
+                throw new AssertionError("After " + clicks() + " clicks: " + problem);
+            }
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder out = new StringBuilder();
+            out.append(String.format(Locale.ROOT, "%d %s clicks in %.1f ms (%.0f clicks/s)%n",
+                clicks(), mode.name().toLowerCase(Locale.ROOT), elapsedNanos / 1e6, clicksPerSecond()));
+            out.append(String.format(Locale.ROOT, "Click latency ms: p50 %.3f, p95 %.3f, p99 %.3f, max %.3f%n",
+                latencyMillis(0.5), latencyMillis(0.95), latencyMillis(0.99), latencyMillis(1.0)));
+            if (delta("JSHeapUsedSize") != null) {
+                out.append(String.format(Locale.ROOT, "JS heap growth: %.1f KiB (%.1f bytes per click)%n",
+                    delta("JSHeapUsedSize") / 1024, delta("JSHeapUsedSize") / clicks()));
+                out.append(String.format(Locale.ROOT, "DOM nodes added: %.0f%n", delta("Nodes")));
+                out.append(String.format(Locale.ROOT,
+                    "Layout: %.0f passes, %.1f ms; style recalc %.1f ms; script %.1f ms%n",
+                    delta("LayoutCount"), delta("LayoutDuration") * 1000,
+                    delta("RecalcStyleDuration") * 1000, delta("ScriptDuration") * 1000));
+            } else {
+                out.append("Layout, script and heap metrics unavailable without DevTools\n");
+            }
+            out.append(problem == null ? "All titles and descriptions correct" : "Incorrect: " + problem);
+            return out.toString();
+        }
+    }
+}
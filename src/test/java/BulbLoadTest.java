@@ -0,0 +1,41 @@
+import java.io.File;
+import java.time.Duration;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.ui.ExpectedConditions;
+import org.openqa.selenium.support.ui.WebDriverWait;
+
+@ExtendWith({WorkerDriverExtension.class, FailureDiagnostics.class})
+public class BulbLoadTest {
+
+    @Test
+    public void clickBulbsUnderLoad(WorkerDriverExtension.WorkerDriver workerDriver) throws Exception {
+        Assumptions.assumeTrue(System.getProperty("load.clicks") != null, "Set -Dload.clicks=<n> to run the load test");
+
+        BulbLoad load = BulbLoad.fromSystemProperties();
+        File htmlFile = SeleniumTest.findHtmlFile().getAbsoluteFile();
+
+        BulbLoad.Report report;
+        if ("js".equalsIgnoreCase(System.getProperty("lab.engine", "browser"))) {
+            try (JsEngineLabPage page = JsEngineLabPage.load(htmlFile)) {
+                report = load.run(page);
+            }
+        } else {
+            String url = StaticFileServer.shared().mount("load", htmlFile.getParentFile()) + htmlFile.getName();
+            WebDriver driver = workerDriver.get();
+            driver.manage().timeouts().pageLoadTimeout(TimeoutScheduler.timeout("page.load", Duration.ofSeconds(60)));
+            driver.get(PageInjector.urlFor(driver, url));
+            new WebDriverWait(driver, TimeoutScheduler.timeout("page.load", Duration.ofSeconds(30)))
+                .until(ExpectedConditions.presenceOfElementLocated(By.tagName("body")));
+            DomWaiter.installErrorHook(driver);
+            report = load.run(new BrowserLabPage(driver));
+        }
+
+        System.out.println("\n=== BULB LOAD REPORT ===");
+        System.out.println(report);
+        report.assertTitlesCorrect();
+    }
+}
@@ -0,0 +1,114 @@
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.openqa.selenium.SessionNotCreatedException;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Chrome or Edge driven over the DevTools protocol directly, without chromedriver or msedgedriver in
+ * between. Opt in with -Dbrowser.backend=cdp.
+ *
+ * <p>The browser is started with --remote-debugging-port=0 and writes the port it picked to
+ * DevToolsActivePort in its profile directory; --remote-debugging-pipe would avoid the port, but it
+ * needs the pipe on file descriptors 3 and 4, which ProcessBuilder cannot set up.
+ */
+public class CdpBackend implements BrowserBackend {
+    private static final String ACTIVE_PORT_FILE = "DevToolsActivePort";
+    private static final long ACTIVE_PORT_POLL_MILLIS = 20;
+
+    @Override
+    public String name() {
+        return "cdp";
+    }
+
+    @Override
+    public boolean supports(BrowserConfig config) {
+        return config.binaryPath != null;
+    }
+
+    /**
+     * {@link CdpDriver} drives a single tab.
+     */
+    @Override
+    public boolean supportsTabs() {
+        return false;
+    }
+
+    @Override
+    public WebDriver launch(BrowserConfig config, LaunchProfile launchProfile, Path profile) {
+        Duration timeout = TimeoutScheduler.timeout("driver.create", Duration.ofSeconds(30));
+        Path activePort = profile.resolve(ACTIVE_PORT_FILE);
+        Process browser;
+        try {
+            // A profile cloned from the template may carry the file from the template's own launch.
+            Files.deleteIfExists(activePort);
+            List<String> command = new ArrayList<>();
+            command.add(config.binaryPath);
+            command.addAll(Arrays.asList(launchProfile.arguments()));
+            command.add("--user-data-dir=" + profile);
+            command.add("--remote-debugging-port=0");
+            command.add("about:blank");
+            browser = new ProcessBuilder(command)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        } catch (IOException e) {
+            throw new SessionNotCreatedException("Could not start " + config.binaryPath, e);
+        }
+
+        try {
+            URI endpoint = awaitEndpoint(browser, activePort, timeout);
+            CdpConnection connection = CdpConnection.open(endpoint, timeout);
+            try {
+                return CdpDriver.attach(browser, connection, config.browserType);
+            } catch (RuntimeException e) {
+                connection.close();
+                throw e;
+            }
+        } catch (RuntimeException e) {
+            browser.descendants().forEach(ProcessHandle::destroyForcibly);
+            browser.destroyForcibly();
+            throw e;
+        }
+    }
+
+    /**
+     * Waits for the browser to write DevToolsActivePort: the port on the first line and the browser
+     * target's path on the second.
+     */
+    private static URI awaitEndpoint(Process browser, Path activePort, Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (true) {
+            try {
+                List<String> lines = Files.readAllLines(activePort, StandardCharsets.UTF_8);
+                if (lines.size() >= 2 && !lines.get(1).isEmpty()) {
+                    return URI.create("ws://127.0.0.1:" + lines.get(0).trim() + lines.get(1).trim());
+                }
+            } catch (NoSuchFileException e) {
+                // Not written yet.
+            } catch (IOException e) {
+                throw new SessionNotCreatedException("Could not read " + activePort, e);
+            }
+            if (!browser.isAlive()) {
+                throw new SessionNotCreatedException("Browser exited with status " + browser.exitValue()
+                    + " before opening DevTools");
+            }
+            if (System.nanoTime() >= deadline) {
+                throw new SessionNotCreatedException("Browser did not open DevTools within " + timeout.toMillis() + " ms");
+            }
+            try {
+                Thread.sleep(ACTIVE_PORT_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SessionNotCreatedException("Interrupted while waiting for DevTools");
+            }
+        }
+    }
+}
@@ -0,0 +1,209 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import org.openqa.selenium.SessionNotCreatedException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.json.Json;
+
+/**
+ * One WebSocket to a browser's DevTools endpoint. Commands are matched to their responses by id;
+ * commands for a page carry the session id of the flattened target session, and events are handed
+ * to listeners on the socket's receiving thread, so listeners must not block. Unreadable messages
+ * and failing listeners are logged for the first {@value #MAX_LOGGED_PROBLEMS} occurrences per
+ * connection and counted after that, so a listener that fails on every event cannot flood the log.
+ */
+final class CdpConnection implements AutoCloseable {
+    private static final Json JSON = new Json();
+    private static final int MAX_LOGGED_PROBLEMS = 5;
+
+    private final AtomicLong ids = new AtomicLong();
+    private final Map<Long, CompletableFuture<Map<String, Object>>> pending = new ConcurrentHashMap<>();
+    private final Map<String, List<Consumer<Map<String, Object>>>> listeners = new ConcurrentHashMap<>();
+    private final Object sendLock = new Object();
+    private final AtomicInteger problems = new AtomicInteger();
+    private volatile WebSocket socket;
+    private volatile String closedReason;
+
+    private CdpConnection() {
+    }
+
+    static CdpConnection open(URI endpoint, Duration timeout) {
+        CdpConnection connection = new CdpConnection();
+        try {
+            connection.socket = HttpClient.newHttpClient().newWebSocketBuilder()
+                .connectTimeout(timeout)
+                .buildAsync(endpoint, connection.new Receiver())
+                .get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            return connection;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SessionNotCreatedException("Interrupted while connecting to " + endpoint, e);
+        } catch (ExecutionException | java.util.concurrent.TimeoutException e) {
+            throw new SessionNotCreatedException("Could not connect to DevTools at " + endpoint, e);
+        }
+    }
+
+    /**
+     * Sends {@code method} and waits for its result.
+     *
+     * @param sessionId the target session to address, or null for the browser itself
+     * @throws TimeoutException if no response arrives within {@code timeout}
+     */
+    Map<String, Object> send(String sessionId, String method, Map<String, ?> params, Duration timeout) {
+        if (closedReason != null) {
+            throw new WebDriverException("DevTools connection closed: " + closedReason);
+        }
+        long id = ids.incrementAndGet();
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("id", id);
+        message.put("method", method);
+        message.put("params", params);
+        if (sessionId != null) {
+            message.put("sessionId", sessionId);
+        }
+        CompletableFuture<Map<String, Object>> response = new CompletableFuture<>();
+        pending.put(id, response);
+        try {
+            synchronized (sendLock) {
+                socket.sendText(toJson(message), true).join();
+            }
+            Map<String, Object> reply = response.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            if (reply.get("error") instanceof Map) {
+                throw new WebDriverException(method + " failed: " + ((Map<?, ?>) reply.get("error")).get("message"));
+            }
+            Object result = reply.get("result");
+            @SuppressWarnings("unchecked")
+            Map<String, Object> resultMap = result instanceof Map ? (Map<String, Object>) result : Map.of();
+            return resultMap;
+        } catch (java.util.concurrent.TimeoutException e) {
+            throw new TimeoutException(method + " got no response within " + timeout.toMillis() + " ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WebDriverException("Interrupted while waiting for " + method, e);
+        } catch (ExecutionException | java.util.concurrent.CompletionException e) {
+            throw new WebDriverException(method + " failed", e.getCause());
+        } finally {
+            pending.remove(id);
+        }
+    }
+
+    void addListener(String event, Consumer<Map<String, Object>> listener) {
+        listeners.computeIfAbsent(event, name -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    void removeListener(String event, Consumer<Map<String, Object>> listener) {
+        List<Consumer<Map<String, Object>>> registered = listeners.get(event);
+        if (registered != null) {
+            registered.remove(listener);
+        }
+    }
+
+    boolean isOpen() {
+        return closedReason == null;
+    }
+
+    @Override
+    public void close() {
+        int unlogged = problems.get() - MAX_LOGGED_PROBLEMS;
+        if (unlogged > 0) {
+            System.out.println("DevTools connection: " + unlogged + " further message problems were not logged");
+        }
+        closed("closed by client");
+        WebSocket open = socket;
+        if (open != null) {
+            open.abort();
+        }
+    }
+
+    static String toJson(Object value) {
+        StringBuilder json = new StringBuilder();
+        JSON.newOutput(json).setPrettyPrint(false).write(value).close();
+        return json.toString();
+    }
+
+    private void closed(String reason) {
+        if (closedReason == null) {
+            closedReason = reason;
+        }
+        WebDriverException failure = new WebDriverException("DevTools connection closed: " + reason);
+        for (CompletableFuture<Map<String, Object>> waiting : pending.values()) {
+            waiting.completeExceptionally(failure);
+        }
+    }
+
+    private void dispatch(String text) {
+        Map<String, Object> message;
+        try {
+            message = JSON.toType(text, Json.MAP_TYPE);
+        } catch (RuntimeException e) {
+            problem("Ignoring unreadable DevTools message: " + e.getMessage());
+            return;
+        }
+        Object id = message.get("id");
+        if (id instanceof Number) {
+            CompletableFuture<Map<String, Object>> waiting = pending.get(((Number) id).longValue());
+            if (waiting != null) {
+                waiting.complete(message);
+            }
+            return;
+        }
+        List<Consumer<Map<String, Object>>> registered = listeners.get(String.valueOf(message.get("method")));
+        if (registered != null) {
+            for (Consumer<Map<String, Object>> listener : registered) {
+                try {
+                    listener.accept(message);
+                } catch (RuntimeException e) {
+                    problem("DevTools listener for " + message.get("method") + " failed: " + e);
+                }
+            }
+        }
+    }
+
+    private void problem(String description) {
+        int count = problems.incrementAndGet();
+        if (count <= MAX_LOGGED_PROBLEMS) {
+            System.out.println(description + (count == MAX_LOGGED_PROBLEMS ? " (further problems are counted, not logged)" : ""));
+        }
+    }
+
+    private final class Receiver implements WebSocket.Listener {
+        private final StringBuilder partial = new StringBuilder();
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            partial.append(data);
+            if (last) {
+                String text = partial.toString();
+                partial.setLength(0);
+                dispatch(text);
+            }
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+            closed("status " + statusCode + (reason.isEmpty() ? "" : " " + reason));
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket webSocket, Throwable error) {
+            closed(String.valueOf(error));
+        }
+    }
+}
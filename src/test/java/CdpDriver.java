@@ -0,0 +1,802 @@
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.openqa.selenium.Alert;
+import org.openqa.selenium.By;
+import org.openqa.selenium.Capabilities;
+import org.openqa.selenium.Cookie;
+import org.openqa.selenium.Dimension;
+import org.openqa.selenium.HasCapabilities;
+import org.openqa.selenium.ImmutableCapabilities;
+import org.openqa.selenium.JavascriptException;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.NoSuchSessionException;
+import org.openqa.selenium.NoSuchWindowException;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.Point;
+import org.openqa.selenium.Rectangle;
+import org.openqa.selenium.ScriptTimeoutException;
+import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.WindowType;
+import org.openqa.selenium.chromium.HasCdp;
+import org.openqa.selenium.logging.Logs;
+
+/**
+ * A {@link WebDriver} that talks to the browser's DevTools endpoint directly, with no driver process
+ * in between: every command is one DevTools message over {@link CdpConnection}.
+ *
+ * <p>It covers what the lab harness uses: navigation, synchronous and asynchronous scripts with
+ * WebDriver's argument and return conventions (including returned DOM nodes), element lookup by CSS
+ * selector, id, tag, class, name, link text and XPath, basic element interaction, cookies, timeouts
+ * and screenshots, plus raw commands through {@link HasCdp}. It drives a single tab; new windows,
+ * frames, alerts, window management and the browser log are not supported. In place of Selenium's
+ * DevTools, {@link BrowserConsole} and {@link PageInjector} subscribe to the tab's events through
+ * {@link #onEvent}.
+ */
+public class CdpDriver implements WebDriver, JavascriptExecutor, TakesScreenshot, HasCapabilities, HasCdp {
+    private static final Duration COMMAND_TIMEOUT = Duration.ofSeconds(60);
+    private static final long IMPLICIT_WAIT_POLL_MILLIS = 50;
+
+    /**
+     * Turns a script's result into something returnByValue can carry: DOM nodes become
+     * {@code {__cdpNode: i}} markers and are kept, non-enumerably, in window.__cdpNodes so that they
+     * can be fetched as remote objects afterwards.
+     */
+    private static final String ENCODE_RESULT =
+        "function (value) {"
+        + "  var nodes = [];"
+        + "  function encode(v, depth) {"
+        + "    if (depth > 20) { return null; }"
+        + "    if (v instanceof Node) { nodes.push(v); return {__cdpNode: nodes.length - 1}; }"
+        + "    if (Array.isArray(v) || v instanceof NodeList || v instanceof HTMLCollection) {"
+        + "      return Array.prototype.map.call(v, function (item) { return encode(item, depth + 1); });"
+        + "    }"
+        + "    if (v !== null && typeof v === 'object' && !(v instanceof Date)) {"
+        + "      var out = {};"
+        + "      for (var key in v) { out[key] = encode(v[key], depth + 1); }"
+        + "      return out;"
+        + "    }"
+        + "    return v;"
+        + "  }"
+        + "  var encoded = encode(value, 0);"
+        + "  Object.defineProperty(window, '__cdpNodes', {value: nodes, configurable: true, writable: true});"
+        + "  return encoded;"
+        + "}";
+
+    private final Process browser;
+    private final CdpConnection connection;
+    private final String targetId;
+    private final String sessionId;
+    private final Capabilities capabilities;
+    private final Timeouts timeouts = new Timeouts();
+    private volatile boolean quit;
+
+    private CdpDriver(Process browser, CdpConnection connection, String targetId, String sessionId,
+                      Capabilities capabilities) {
+        this.browser = browser;
+        this.connection = connection;
+        this.targetId = targetId;
+        this.sessionId = sessionId;
+        this.capabilities = capabilities;
+    }
+
+    /**
+     * Attaches to the browser's first tab (opening one if there is none) over {@code connection}.
+     */
+    static CdpDriver attach(Process browser, CdpConnection connection, String browserName) {
+        String targetId = null;
+        Object targets = connection.send(null, "Target.getTargets", Map.of(), COMMAND_TIMEOUT).get("targetInfos");
+        if (targets instanceof List) {
+            for (Object target : (List<?>) targets) {
+                if (target instanceof Map && "page".equals(((Map<?, ?>) target).get("type"))) {
+                    targetId = String.valueOf(((Map<?, ?>) target).get("targetId"));
+                    break;
+                }
+            }
+        }
+        if (targetId == null) {
+            targetId = String.valueOf(connection.send(null, "Target.createTarget", Map.of("url", "about:blank"),
+                COMMAND_TIMEOUT).get("targetId"));
+        }
+        String sessionId = String.valueOf(connection.send(null, "Target.attachToTarget",
+            Map.of("targetId", targetId, "flatten", true), COMMAND_TIMEOUT).get("sessionId"));
+
+        String product = String.valueOf(connection.send(null, "Browser.getVersion", Map.of(), COMMAND_TIMEOUT)
+            .get("product"));
+        String version = product.contains("/") ? product.substring(product.indexOf('/') + 1) : product;
+        CdpDriver driver = new CdpDriver(browser, connection, targetId, sessionId, new ImmutableCapabilities(
+            "browserName", "edge".equals(browserName) ? "MicrosoftEdge" : "chrome", "browserVersion", version));
+        driver.send("Page.enable", Map.of());
+        return driver;
+    }
+
+    Map<String, Object> send(String method, Map<String, ?> params) {
+        return send(method, params, COMMAND_TIMEOUT);
+    }
+
+    /**
+     * Passes the parameters of every {@code event} raised by this driver's tab to {@code listener},
+     * until the returned handle is run. Listeners run on the connection's receiving thread, so they
+     * must not block, and in particular must not {@link #send} and wait for the reply.
+     */
+    Runnable onEvent(String event, Consumer<Map<String, Object>> listener) {
+        Consumer<Map<String, Object>> filtered = message -> {
+            if (sessionId.equals(message.get("sessionId")) && message.get("params") instanceof Map) {
+                @SuppressWarnings("unchecked")
+                Map<String, Object> params = (Map<String, Object>) message.get("params");
+                listener.accept(params);
+            }
+        };
+        connection.addListener(event, filtered);
+        return () -> connection.removeListener(event, filtered);
+    }
+
+    private Map<String, Object> send(String method, Map<String, ?> params, Duration timeout) {
+        if (quit) {
+            throw new NoSuchSessionException("Session was quit");
+        }
+        return connection.send(sessionId, method, params, timeout);
+    }
+
+    @Override
+    public Map<String, Object> executeCdpCommand(String commandName, Map<String, Object> parameters) {
+        return send(commandName, parameters);
+    }
+
+    @Override
+    public Capabilities getCapabilities() {
+        return capabilities;
+    }
+
+    @Override
+    public void get(String url) {
+        CountDownLatch loaded = new CountDownLatch(1);
+        Consumer<Map<String, Object>> listener = event -> {
+            if (sessionId.equals(event.get("sessionId"))) {
+                loaded.countDown();
+            }
+        };
+        connection.addListener("Page.loadEventFired", listener);
+        try {
+            Map<String, Object> result = send("Page.navigate", Map.of("url", url));
+            if (result.get("errorText") != null) {
+                throw new WebDriverException("Navigation to " + url + " failed: " + result.get("errorText"));
+            }
+            if (result.get("loaderId") == null) {
+                // Same-document navigation: no new document, no load event.
+                return;
+            }
+            if (!loaded.await(timeouts.pageLoad.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new TimeoutException("Page " + url + " did not load within " + timeouts.pageLoad.toMillis() + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WebDriverException("Interrupted while loading " + url, e);
+        } finally {
+            connection.removeListener("Page.loadEventFired", listener);
+        }
+    }
+
+    @Override
+    public String getCurrentUrl() {
+        return String.valueOf(executeScript("return location.href;"));
+    }
+
+    @Override
+    public String getTitle() {
+        return String.valueOf(executeScript("return document.title;"));
+    }
+
+    @Override
+    public String getPageSource() {
+        return String.valueOf(executeScript(
+            "var doctype = document.doctype ? new XMLSerializer().serializeToString(document.doctype) : '';"
+            + "return doctype + document.documentElement.outerHTML;"));
+    }
+
+    @Override
+    public List<WebElement> findElements(By by) {
+        return find(null, by, false);
+    }
+
+    @Override
+    public WebElement findElement(By by) {
+        return find(null, by, true).get(0);
+    }
+
+    @Override
+    public Object executeScript(String script, Object... args) {
+        return execute(script, args, false);
+    }
+
+    @Override
+    public Object executeAsyncScript(String script, Object... args) {
+        return execute(script, args, true);
+    }
+
+    @Override
+    public <X> X getScreenshotAs(OutputType<X> target) {
+        return target.convertFromBase64Png(String.valueOf(
+            send("Page.captureScreenshot", Map.of("format", "png")).get("data")));
+    }
+
+    @Override
+    public String getWindowHandle() {
+        if (quit || !browser.isAlive() || !connection.isOpen()) {
+            throw new NoSuchSessionException("Browser session is gone");
+        }
+        return targetId;
+    }
+
+    @Override
+    public Set<String> getWindowHandles() {
+        return Collections.singleton(getWindowHandle());
+    }
+
+    @Override
+    public void close() {
+        quit();
+    }
+
+    @Override
+    public void quit() {
+        if (quit) {
+            return;
+        }
+        try {
+            connection.send(null, "Browser.close", Map.of(), Duration.ofSeconds(5));
+        } catch (RuntimeException e) {
+            // Already gone, or not answering; the process is killed below either way.
+        }
+        quit = true;
+        connection.close();
+        try {
+            browser.waitFor(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        browser.descendants().forEach(ProcessHandle::destroyForcibly);
+        browser.destroyForcibly();
+    }
+
+    @Override
+    public TargetLocator switchTo() {
+        return new TargetLocator() {
+            @Override
+            public WebDriver window(String nameOrHandle) {
+                if (!targetId.equals(nameOrHandle)) {
+                    throw new NoSuchWindowException("The CDP backend drives a single tab: " + nameOrHandle);
+                }
+                return CdpDriver.this;
+            }
+
+            @Override
+            public WebDriver defaultContent() {
+                return CdpDriver.this;
+            }
+
+            @Override
+            public WebElement activeElement() {
+                return (WebElement) executeScript("return document.activeElement;");
+            }
+
+            @Override
+            public WebDriver frame(int index) {
+                throw unsupported("frames");
+            }
+
+            @Override
+            public WebDriver frame(String nameOrId) {
+                throw unsupported("frames");
+            }
+
+            @Override
+            public WebDriver frame(WebElement frameElement) {
+                throw unsupported("frames");
+            }
+
+            @Override
+            public WebDriver parentFrame() {
+                throw unsupported("frames");
+            }
+
+            @Override
+            public WebDriver newWindow(WindowType typeHint) {
+                throw unsupported("new windows");
+            }
+
+            @Override
+            public Alert alert() {
+                throw unsupported("alerts");
+            }
+        };
+    }
+
+    @Override
+    public Navigation navigate() {
+        return new Navigation() {
+            @Override
+            public void back() {
+                executeScript("history.back();");
+            }
+
+            @Override
+            public void forward() {
+                executeScript("history.forward();");
+            }
+
+            @Override
+            public void to(String url) {
+                get(url);
+            }
+
+            @Override
+            public void to(java.net.URL url) {
+                get(url.toString());
+            }
+
+            @Override
+            public void refresh() {
+                get(getCurrentUrl());
+            }
+        };
+    }
+
+    @Override
+    public Options manage() {
+        return new Options() {
+            @Override
+            public void addCookie(Cookie cookie) {
+                Map<String, Object> params = new LinkedHashMap<>();
+                params.put("name", cookie.getName());
+                params.put("value", cookie.getValue());
+                params.put("url", getCurrentUrl());
+                if (cookie.getDomain() != null) {
+                    params.put("domain", cookie.getDomain());
+                }
+                if (cookie.getPath() != null) {
+                    params.put("path", cookie.getPath());
+                }
+                send("Network.setCookie", params);
+            }
+
+            @Override
+            public void deleteCookieNamed(String name) {
+                send("Network.deleteCookies", Map.of("name", name, "url", getCurrentUrl()));
+            }
+
+            @Override
+            public void deleteCookie(Cookie cookie) {
+                deleteCookieNamed(cookie.getName());
+            }
+
+            @Override
+            public void deleteAllCookies() {
+                send("Network.clearBrowserCookies", Map.of());
+            }
+
+            @Override
+            public Set<Cookie> getCookies() {
+                Set<Cookie> cookies = new LinkedHashSet<>();
+                Object raw = send("Network.getCookies", Map.of()).get("cookies");
+                if (raw instanceof List) {
+                    for (Object entry : (List<?>) raw) {
+                        Map<?, ?> cookie = (Map<?, ?>) entry;
+                        cookies.add(new Cookie.Builder(String.valueOf(cookie.get("name")), String.valueOf(cookie.get("value")))
+                            .domain((String) cookie.get("domain"))
+                            .path((String) cookie.get("path"))
+                            .isSecure(Boolean.TRUE.equals(cookie.get("secure")))
+                            .isHttpOnly(Boolean.TRUE.equals(cookie.get("httpOnly")))
+                            .build());
+                    }
+                }
+                return cookies;
+            }
+
+            @Override
+            public Cookie getCookieNamed(String name) {
+                for (Cookie cookie : getCookies()) {
+                    if (cookie.getName().equals(name)) {
+                        return cookie;
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public WebDriver.Timeouts timeouts() {
+                return timeouts;
+            }
+
+            @Override
+            public Window window() {
+                throw unsupported("window management");
+            }
+
+            @Override
+            public Logs logs() {
+                throw unsupported("the browser log");
+            }
+        };
+    }
+
+    private Object execute(String script, Object[] args, boolean async) {
+        List<Object> arguments = args == null ? List.of() : Arrays.asList(args);
+        Element target = null;
+        for (Object argument : arguments) {
+            if (argument instanceof Element) {
+                target = (Element) argument;
+                break;
+            }
+        }
+        String function = "(function () {" + script + "\n})";
+        Duration timeout = async ? timeouts.script.plusSeconds(5) : COMMAND_TIMEOUT;
+        Map<String, Object> response;
+        try {
+            if (target == null) {
+                // Plain values only: one Runtime.evaluate with the arguments inlined as JSON.
+                String argumentsJson = CdpConnection.toJson(arguments);
+                String expression = async
+                    ? "new Promise(function (resolve) { var args = " + argumentsJson + "; args.push(resolve); "
+                        + function + ".apply(window, args); }).then(" + ENCODE_RESULT + ")"
+                    : "(" + ENCODE_RESULT + ")(" + function + ".apply(window, " + argumentsJson + "))";
+                response = send("Runtime.evaluate", Map.of("expression", expression, "returnByValue", true,
+                    "awaitPromise", async), timeout);
+            } else {
+                // Element arguments are passed by object id, which needs Runtime.callFunctionOn.
+                String declaration = async
+                    ? "function () { var args = Array.prototype.slice.call(arguments);"
+                        + " return new Promise(function (resolve) { args.push(resolve); "
+                        + function + ".apply(window, args); }).then(" + ENCODE_RESULT + "); }"
+                    : "function () { return (" + ENCODE_RESULT + ")(" + function + ".apply(window, arguments)); }";
+                List<Map<String, Object>> callArguments = new ArrayList<>();
+                for (Object argument : arguments) {
+                    callArguments.add(argument instanceof Element
+                        ? Map.of("objectId", ((Element) argument).objectId)
+                        : Collections.singletonMap("value", argument));
+                }
+                response = send("Runtime.callFunctionOn", Map.of("objectId", target.objectId,
+                    "functionDeclaration", declaration, "arguments", callArguments, "returnByValue", true,
+                    "awaitPromise", async), timeout);
+            }
+        } catch (TimeoutException e) {
+            if (async) {
+                throw new ScriptTimeoutException("Script did not call back within " + timeouts.script.toMillis() + " ms");
+            }
+            throw e;
+        }
+        if (response.get("exceptionDetails") instanceof Map) {
+            throw new JavascriptException(describe((Map<?, ?>) response.get("exceptionDetails")));
+        }
+        Object result = response.get("result");
+        return decode(result instanceof Map ? ((Map<?, ?>) result).get("value") : null);
+    }
+
+    private Object decode(Object value) {
+        if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            if (map.size() == 1 && map.get("__cdpNode") instanceof Number) {
+                return resolveNode(((Number) map.get("__cdpNode")).intValue());
+            }
+            Map<String, Object> decoded = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                decoded.put(String.valueOf(entry.getKey()), decode(entry.getValue()));
+            }
+            return decoded;
+        }
+        if (value instanceof List) {
+            List<Object> decoded = new ArrayList<>();
+            for (Object item : (List<?>) value) {
+                decoded.add(decode(item));
+            }
+            return decoded;
+        }
+        return value;
+    }
+
+    private Element resolveNode(int index) {
+        Object remote = send("Runtime.evaluate", Map.of("expression", "window.__cdpNodes[" + index + "]")).get("result");
+        Object objectId = remote instanceof Map ? ((Map<?, ?>) remote).get("objectId") : null;
+        if (objectId == null) {
+            throw new WebDriverException("Returned DOM node " + index + " could not be resolved");
+        }
+        return new Element(String.valueOf(objectId));
+    }
+
+    private static String describe(Map<?, ?> exceptionDetails) {
+        Object exception = exceptionDetails.get("exception");
+        if (exception instanceof Map && ((Map<?, ?>) exception).get("description") != null) {
+            return String.valueOf(((Map<?, ?>) exception).get("description"));
+        }
+        return String.valueOf(exceptionDetails.get("text"));
+    }
+
+    /**
+     * Finds elements below {@code scope} (the document if null), polling for up to the implicit wait
+     * when {@code required} and nothing matches yet.
+     */
+    private List<WebElement> find(Element scope, By by, boolean required) {
+        if (!(by instanceof By.Remotable)) {
+            throw new UnsupportedOperationException("The CDP backend cannot locate elements " + by);
+        }
+        By.Remotable.Parameters parameters = ((By.Remotable) by).getRemoteParameters();
+        String query;
+        switch (parameters.using()) {
+            case "css selector":
+                query = "return root.querySelectorAll(value);";
+                break;
+            case "xpath":
+                query = "var found = document.evaluate(value, root, null, XPathResult.ORDERED_NODE_SNAPSHOT_TYPE, null);"
+                    + "var out = [];"
+                    + "for (var i = 0; i < found.snapshotLength; i++) { out.push(found.snapshotItem(i)); }"
+                    + "return out;";
+                break;
+            case "link text":
+            case "partial link text":
+                boolean partial = "partial link text".equals(parameters.using());
+                query = "return Array.prototype.filter.call(root.querySelectorAll('a'), function (link) {"
+                    + "  var text = link.innerText.trim();"
+                    + "  return " + (partial ? "text.indexOf(value) >= 0" : "text === value") + ";"
+                    + "});";
+                break;
+            default:
+                throw new UnsupportedOperationException("The CDP backend cannot locate elements " + by);
+        }
+        String script = "var root = arguments[0] || document, value = arguments[1];"
+            + "return Array.prototype.slice.call((function () {" + query + "})());";
+        long deadline = System.nanoTime() + timeouts.implicit.toNanos();
+        while (true) {
+            List<WebElement> elements = new ArrayList<>();
+            Object found = executeScript(script, scope, String.valueOf(parameters.value()));
+            if (found instanceof List) {
+                for (Object element : (List<?>) found) {
+                    elements.add((WebElement) element);
+                }
+            }
+            if (!required || !elements.isEmpty()) {
+                return elements;
+            }
+            if (System.nanoTime() >= deadline) {
+                throw new NoSuchElementException("No element matches " + by);
+            }
+            try {
+                Thread.sleep(IMPLICIT_WAIT_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new WebDriverException("Interrupted while looking for " + by, e);
+            }
+        }
+    }
+
+    private static UnsupportedOperationException unsupported(String feature) {
+        return new UnsupportedOperationException("The CDP backend does not support " + feature);
+    }
+
+    /**
+     * Implements the deprecated {@code TimeUnit} and {@code setScriptTimeout} variants too, since
+     * callers may still use them; each one forwards to its {@link Duration} replacement.
+     */
+    @SuppressWarnings("deprecation")
+    private static final class Timeouts implements WebDriver.Timeouts {
+        private volatile Duration implicit = Duration.ZERO;
+        private volatile Duration script = Duration.ofSeconds(30);
+        private volatile Duration pageLoad = Duration.ofSeconds(300);
+
+        @Override
+        public Timeouts implicitlyWait(long time, TimeUnit unit) {
+            return implicitlyWait(Duration.ofMillis(unit.toMillis(time)));
+        }
+
+        @Override
+        public Timeouts implicitlyWait(Duration duration) {
+            implicit = duration;
+            return this;
+        }
+
+        @Override
+        public Duration getImplicitWaitTimeout() {
+            return implicit;
+        }
+
+        @Override
+        public Timeouts setScriptTimeout(long time, TimeUnit unit) {
+            return scriptTimeout(Duration.ofMillis(unit.toMillis(time)));
+        }
+
+        @Override
+        public Timeouts setScriptTimeout(Duration duration) {
+            return scriptTimeout(duration);
+        }
+
+        @Override
+        public Timeouts scriptTimeout(Duration duration) {
+            script = duration;
+            return this;
+        }
+
+        @Override
+        public Duration getScriptTimeout() {
+            return script;
+        }
+
+        @Override
+        public Timeouts pageLoadTimeout(long time, TimeUnit unit) {
+            return pageLoadTimeout(Duration.ofMillis(unit.toMillis(time)));
+        }
+
+        @Override
+        public Timeouts pageLoadTimeout(Duration duration) {
+            pageLoad = duration;
+            return this;
+        }
+
+        @Override
+        public Duration getPageLoadTimeout() {
+            return pageLoad;
+        }
+    }
+
+    /**
+     * A DOM node held as a DevTools remote object. Its methods run small functions on the node
+     * through {@link #executeScript}, which passes the node by object id.
+     */
+    private final class Element implements WebElement {
+        private final String objectId;
+
+        Element(String objectId) {
+            this.objectId = objectId;
+        }
+
+        private Object call(String function, Object... args) {
+            Object[] callArgs = new Object[args.length + 1];
+            callArgs[0] = this;
+            System.arraycopy(args, 0, callArgs, 1, args.length);
+            return executeScript("return (" + function + ").apply(arguments[0], "
+                + "Array.prototype.slice.call(arguments, 1));", callArgs);
+        }
+
+        @Override
+        public void click() {
+            call("function () { this.scrollIntoView({block: 'center'}); this.click(); }");
+        }
+
+        @Override
+        public void submit() {
+            call("function () {"
+                + "  var form = this.form || this.closest('form');"
+                + "  if (form) { form.requestSubmit ? form.requestSubmit() : form.submit(); }"
+                + "}");
+        }
+
+        @Override
+        public void sendKeys(CharSequence... keysToSend) {
+            StringBuilder text = new StringBuilder();
+            for (CharSequence keys : keysToSend) {
+                text.append(keys);
+            }
+            call("function () { this.focus(); }");
+            send("Input.insertText", Map.of("text", text.toString()));
+        }
+
+        @Override
+        public void clear() {
+            call("function () {"
+                + "  this.value = '';"
+                + "  this.dispatchEvent(new Event('input', {bubbles: true}));"
+                + "  this.dispatchEvent(new Event('change', {bubbles: true}));"
+                + "}");
+        }
+
+        @Override
+        public String getTagName() {
+            return (String) call("function () { return this.tagName.toLowerCase(); }");
+        }
+
+        @Override
+        public String getAttribute(String name) {
+            Object value = call("function (name) {"
+                + "  var property = this[name];"
+                + "  if (property !== undefined && property !== null && typeof property !== 'object'"
+                + "      && typeof property !== 'function') { return String(property); }"
+                + "  return this.getAttribute(name);"
+                + "}", name);
+            return value == null ? null : String.valueOf(value);
+        }
+
+        @Override
+        public String getDomAttribute(String name) {
+            return (String) call("function (name) { return this.getAttribute(name); }", name);
+        }
+
+        @Override
+        public String getDomProperty(String name) {
+            Object value = call("function (name) { var value = this[name]; return value == null ? null : String(value); }", name);
+            return value == null ? null : String.valueOf(value);
+        }
+
+        @Override
+        public boolean isSelected() {
+            return Boolean.TRUE.equals(call("function () { return !!(this.checked || this.selected); }"));
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return Boolean.TRUE.equals(call("function () { return !this.disabled; }"));
+        }
+
+        @Override
+        public String getText() {
+            Object text = call("function () { return this.innerText; }");
+            return text == null ? "" : String.valueOf(text);
+        }
+
+        @Override
+        public List<WebElement> findElements(By by) {
+            return find(this, by, false);
+        }
+
+        @Override
+        public WebElement findElement(By by) {
+            return find(this, by, true).get(0);
+        }
+
+        @Override
+        public boolean isDisplayed() {
+            return Boolean.TRUE.equals(call("function () {"
+                + "  var style = getComputedStyle(this);"
+                + "  return this.getClientRects().length > 0 && style.visibility !== 'hidden';"
+                + "}"));
+        }
+
+        @Override
+        public Point getLocation() {
+            return getRect().getPoint();
+        }
+
+        @Override
+        public Dimension getSize() {
+            return getRect().getDimension();
+        }
+
+        @Override
+        public Rectangle getRect() {
+            List<?> rect = (List<?>) call("function () {"
+                + "  var rect = this.getBoundingClientRect();"
+                + "  return [rect.left + scrollX, rect.top + scrollY, rect.height, rect.width];"
+                + "}");
+            return new Rectangle(intValue(rect.get(0)), intValue(rect.get(1)), intValue(rect.get(2)), intValue(rect.get(3)));
+        }
+
+        @Override
+        public String getCssValue(String propertyName) {
+            return (String) call("function (name) { return getComputedStyle(this).getPropertyValue(name); }", propertyName);
+        }
+
+        @Override
+        public <X> X getScreenshotAs(OutputType<X> target) {
+            Rectangle rect = getRect();
+            Map<String, Object> clip = Map.of("x", rect.getX(), "y", rect.getY(),
+                "width", rect.getWidth(), "height", rect.getHeight(), "scale", 1);
+            return target.convertFromBase64Png(String.valueOf(
+                send("Page.captureScreenshot", Map.of("format", "png", "clip", clip)).get("data")));
+        }
+
+        private int intValue(Object number) {
+            return number instanceof Number ? (int) Math.round(((Number) number).doubleValue()) : 0;
+        }
+    }
+}
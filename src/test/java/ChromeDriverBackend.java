@@ -0,0 +1,50 @@
+import java.io.File;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.logging.Level;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeDriverService;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.logging.LogType;
+import org.openqa.selenium.logging.LoggingPreferences;
+
+/**
+ * Chrome or Chromium driven through chromedriver. The default backend for a discovered Chrome.
+ */
+public class ChromeDriverBackend implements BrowserBackend {
+
+    @Override
+    public String name() {
+        return "chromedriver";
+    }
+
+    @Override
+    public boolean supports(BrowserConfig config) {
+        return !"edge".equals(config.browserType) && config.driverPath != null;
+    }
+
+    @Override
+    public WebDriver launch(BrowserConfig config, LaunchProfile launchProfile, Path profile) {
+        ChromeOptions options = new ChromeOptions();
+        
+        if (config.binaryPath != null) {
+            options.setBinary(config.binaryPath);
+        }
+        
+        options.addArguments(launchProfile.arguments());
+        options.addArguments("--user-data-dir=" + profile);
+        
+        LoggingPreferences logPrefs = new LoggingPreferences();
+        logPrefs.enable(LogType.BROWSER, Level.ALL);
+        options.setCapability("goog:loggingPrefs", logPrefs);
+        
+        ChromeDriverService.Builder serviceBuilder = new ChromeDriverService.Builder()
+            .usingDriverExecutable(new File(config.driverPath))
+            .withTimeout(TimeoutScheduler.timeout("driver.create", Duration.ofSeconds(30)));
+        
+        ChromeDriverService service = serviceBuilder.build();
+        
+        return new ChromeDriver(service, options);
+    }
+}
@@ -0,0 +1,216 @@
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.openqa.selenium.TimeoutException;
+
+/**
+ * A set of DOM expectations evaluated in a single driver round-trip. The expectations are sent to
+ * the page as one script, optionally preceded by a click, and the page answers with a structured
+ * result per expectation that is then asserted on in Java.
+ *
+ * <pre>
+ * new DomExpectations()
+ *     .exists("h2", "Lightbulb 1")
+ *     .textContains("p", "The bulb is", "on")
+ *     .textNotContains("p", "The bulb is", "off")
+ *     .afterClick(page, "onBulb")
+ *     .assertAllPassed();
+ * </pre>
+ */
+public class DomExpectations {
+    private static final String EVALUATE =
+        "var specs = arguments[0], clickId = arguments[1], timeout = arguments[2];"
+        + "var done = arguments[arguments.length - 1];"
+        + "var finished = false, timer = null, observer = null, last = null;"
+        + "function select(spec) {"
+        + "  var nodes = document.querySelectorAll(spec.selector);"
+        + "  for (var i = 0; i < nodes.length; i++) {"
+        + "    var text = nodes[i].textContent || '';"
+        + "    if (spec.match === null"
+        + "        || (spec.exact ? text.trim() === spec.match : text.indexOf(spec.match) >= 0)) {"
+        + "      return nodes[i];"
+        + "    }"
+        + "  }"
+        + "  return null;"
+        + "}"
+        + "function evaluate() {"
+        + "  var results = {}, all = true;"
+        + "  specs.forEach(function (spec) {"
+        + "    var node = select(spec);"
+        + "    var actual = node === null ? null : (node.textContent || '');"
+        + "    var passed = node !== null;"
+        + "    if (passed && spec.check === 'contains') { passed = actual.indexOf(spec.value) >= 0; }"
+        + "    if (passed && spec.check === 'notContains') { passed = actual.indexOf(spec.value) < 0; }"
+        + "    if (passed && spec.check === 'equals') { passed = actual.trim() === spec.value; }"
+        + "    results[spec.name] = {passed: passed, actual: actual};"
+        + "    all = all && passed;"
+        + "  });"
+        + "  return {allPassed: all, results: results};"
+        + "}"
+        + "function finish(result) {"
+        + "  if (finished) { return; }"
+        + "  finished = true;"
+        + "  if (observer) { observer.disconnect(); }"
+        + "  clearTimeout(timer);"
+        + "  window.removeEventListener('error', onError);"
+        + "  done(result);"
+        + "}"
+        + "function onError(e) {"
+        + "  var result = last || evaluate();"
+        + "  result.error = String(e.message || e.error);"
+        + "  finish(result);"
+        + "}"
+        + "function check() {"
+        + "  last = evaluate();"
+        + "  if (window.__labErrors && window.__labErrors.length) {"
+        + "    last.error = window.__labErrors[0];"
+        + "    finish(last);"
+        + "  } else if (last.allPassed || timeout <= 0) {"
+        + "    finish(last);"
+        + "  }"
+        + "}"
+        + "window.addEventListener('error', onError);"
+        + "if (clickId !== null) {"
+        + "  var button = document.getElementById(clickId);"
+        + "  if (button === null) { finish({allPassed: false, results: {}, error: 'No element with id ' + clickId}); return; }"
+        + "  try { button.click(); } catch (e) { onError({message: String(e)}); return; }"
+        + "}"
+        + "if (timeout > 0) {"
+        + "  observer = new MutationObserver(check);"
+        + "  observer.observe(document.documentElement, {childList: true, subtree: true, characterData: true});"
+        + "  timer = setTimeout(function () {"
+        + "    var result = last || evaluate();"
+        + "    result.timedOut = true;"
+        + "    finish(result);"
+        + "  }, timeout);"
+        + "}"
+        + "check();";
+
+    private final List<Map<String, Object>> specs = new ArrayList<>();
+
+    /**
+     * Expects an element matching {@code selector} whose trimmed text is exactly {@code text}.
+     */
+    public DomExpectations exists(String selector, String text) {
+        return add(selector + " with text '" + text + "' exists", selector, text, true, "exists", null);
+    }
+
+    /**
+     * Expects the first element matching {@code selector} and containing {@code match} to also contain {@code value}.
+     */
+    public DomExpectations textContains(String selector, String match, String value) {
+        return add(selector + " containing '" + match + "' contains '" + value + "'", selector, match, false, "contains", value);
+    }
+
+    public DomExpectations textNotContains(String selector, String match, String value) {
+        return add(selector + " containing '" + match + "' does not contain '" + value + "'", selector, match, false, "notContains", value);
+    }
+
+    public DomExpectations textEquals(String selector, String value) {
+        return add(selector + " has text '" + value + "'", selector, null, false, "equals", value);
+    }
+
+    /**
+     * Evaluates all expectations against the current page in one round-trip, without waiting.
+     */
+    public Result verify(LabPage page) {
+        return execute(page, null, Duration.ZERO);
+    }
+
+    /**
+     * Clicks the element with id {@code elementId} and waits until every expectation holds, a
+     * JavaScript error is raised, or the adaptive DOM wait timeout (by default
+     * {@link DomWaiter#DEFAULT_TIMEOUT}) passes, all in one round-trip.
+     */
+    public Result afterClick(LabPage page, String elementId) {
+        return execute(page, elementId, DomWaiter.defaultTimeout());
+    }
+
+    public Result afterClick(LabPage page, String elementId, Duration timeout) {
+        return execute(page, elementId, timeout);
+    }
+
+    private DomExpectations add(String name, String selector, String match, boolean exact, String check, String value) {
+        Map<String, Object> spec = new LinkedHashMap<>();
+        spec.put("name", name);
+        spec.put("selector", selector);
+        spec.put("match", match);
+        spec.put("exact", exact);
+        spec.put("check", check);
+        spec.put("value", value);
+        specs.add(spec);
+        return this;
+    }
+
+    private Result execute(LabPage page, String clickId, Duration timeout) {
+        long start = System.nanoTime();
+        Object raw = page.executeAsyncScript(EVALUATE, timeout, specs, clickId, timeout.toMillis());
+        Result result = new Result(specs, raw instanceof Map ? (Map<?, ?>) raw : Map.of());
+        if (timeout.compareTo(Duration.ZERO) > 0 && result.allPassed()) {
+            TimeoutScheduler.observe(DomWaiter.WAIT_PHASE, System.nanoTime() - start);
+        } else if (result.timedOut) {
+            TimeoutScheduler.timedOut(DomWaiter.WAIT_PHASE, System.nanoTime() - start);
+        }
+        return result;
+    }
+
+    public static class Result {
+        private final Map<String, Boolean> passed = new LinkedHashMap<>();
+        private final Map<String, String> actual = new LinkedHashMap<>();
+        private final String error;
+        private final boolean timedOut;
+
+        Result(List<Map<String, Object>> specs, Map<?, ?> raw) {
+            Map<?, ?> results = raw.get("results") instanceof Map ? (Map<?, ?>) raw.get("results") : Map.of();
+            for (Map<String, Object> spec : specs) {
+                String name = (String) spec.get("name");
+                Map<?, ?> result = results.get(name) instanceof Map ? (Map<?, ?>) results.get(name) : Map.of();
+                passed.put(name, Boolean.TRUE.equals(result.get("passed")));
+                actual.put(name, result.get("actual") == null ? null : String.valueOf(result.get("actual")));
+            }
+            this.error = raw.get("error") == null ? null : String.valueOf(raw.get("error"));
+            this.timedOut = Boolean.TRUE.equals(raw.get("timedOut"));
+        }
+
+        public boolean allPassed() {
+            return error == null && !passed.containsValue(false);
+        }
+
+        public Map<String, Boolean> asMap() {
+            return passed;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public void assertAllPassed() {
+            if (allPassed()) {
+                return;
+            }
+            StringBuilder message = new StringBuilder();
+            if (error != null) {
+                message.append("JavaScript error on page: ").append(error).append('\n');
+            }
+            for (Map.Entry<String, Boolean> entry : passed.entrySet()) {
+                if (!entry.getValue()) {
+                    message.append("Expected ").append(entry.getKey())
+                        .append(" but found ").append(actual.get(entry.getKey()) == null
+                            ? "no matching element" : "'" + actual.get(entry.getKey()).trim() + "'")
+                        .append('\n');
+                }
+            }
+            // A wait that ran out is marked with its timeout as the cause, so it is not cached as a verdict.
+            throw timedOut
+                ? new AssertionError(message.toString().trim(), new TimeoutException("Wait for expectations timed out"))
+                : new AssertionError(message.toString().trim());
+        }
+
+        @Override
+        public String toString() {
+            return (error == null ? "" : "error=" + error + " ") + passed;
+        }
+    }
+}
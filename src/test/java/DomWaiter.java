@@ -0,0 +1,41 @@
+import java.time.Duration;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Shared pieces of the event-driven waits in {@link DomExpectations}: the error hook that lets a wait
+ * end as soon as the page throws instead of running into its timeout, and the wait timeout itself.
+ */
+public final class DomWaiter {
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(10);
+    static final String WAIT_PHASE = "dom.wait";
+
+    private static final String INSTALL_ERROR_HOOK =
+        "if (!window.__labErrors) {"
+        + "  window.__labErrors = [];"
+        + "  window.addEventListener('error', function (e) {"
+        + "    window.__labErrors.push(String(e.message || e.error));"
+        + "  });"
+        + "  window.addEventListener('unhandledrejection', function (e) {"
+        + "    window.__labErrors.push('Unhandled promise rejection: ' + e.reason);"
+        + "  });"
+        + "}";
+
+    private DomWaiter() {
+    }
+
+    /**
+     * {@link #DEFAULT_TIMEOUT}, adapted to how long DOM waits have actually been taking.
+     */
+    public static Duration defaultTimeout() {
+        return TimeoutScheduler.timeout(WAIT_PHASE, DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * Records uncaught errors and unhandled rejections raised by the page from now on, so that a wait
+     * started after a click can see an error the click handler already threw.
+     */
+    public static void installErrorHook(WebDriver driver) {
+        ((JavascriptExecutor) driver).executeScript(INSTALL_ERROR_HOOK);
+    }
+}
@@ -0,0 +1,50 @@
+import java.io.File;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.logging.Level;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.edge.EdgeDriver;
+import org.openqa.selenium.edge.EdgeDriverService;
+import org.openqa.selenium.edge.EdgeOptions;
+import org.openqa.selenium.logging.LogType;
+import org.openqa.selenium.logging.LoggingPreferences;
+
+/**
+ * Microsoft Edge driven through msedgedriver. The default backend for a discovered Edge.
+ */
+public class EdgeDriverBackend implements BrowserBackend {
+
+    @Override
+    public String name() {
+        return "edgedriver";
+    }
+
+    @Override
+    public boolean supports(BrowserConfig config) {
+        return "edge".equals(config.browserType) && config.driverPath != null;
+    }
+
+    @Override
+    public WebDriver launch(BrowserConfig config, LaunchProfile launchProfile, Path profile) {
+        EdgeOptions options = new EdgeOptions();
+        
+        if (config.binaryPath != null) {
+            options.setBinary(config.binaryPath);
+        }
+        
+        options.addArguments(launchProfile.arguments());
+        options.addArguments("--user-data-dir=" + profile);
+        
+        LoggingPreferences logPrefs = new LoggingPreferences();
+        logPrefs.enable(LogType.BROWSER, Level.ALL);
+        options.setCapability("ms:loggingPrefs", logPrefs);
+        
+        EdgeDriverService.Builder serviceBuilder = new EdgeDriverService.Builder()
+            .usingDriverExecutable(new File(config.driverPath))
+            .withTimeout(TimeoutScheduler.timeout("driver.create", Duration.ofSeconds(30)));
+        
+        EdgeDriverService service = serviceBuilder.build();
+        
+        return new EdgeDriver(service, options);
+    }
+}
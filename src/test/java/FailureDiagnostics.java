@@ -0,0 +1,185 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.TestExecutionExceptionHandler;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Collects diagnostics for a failed check, and only for a failed one: the page source, a screenshot,
+ * the browser console and the DOM of -Ddiagnostics.selector (default {@code #container}), plus the
+ * failure itself. They are read from the browser while the failing page is still loaded and then
+ * zipped into target/diagnostics (-Ddiagnostics.dir) on a background thread; -Ddiagnostics=false
+ * turns capturing off.
+ *
+ * <p>As a JUnit extension it handles failures of tests that use {@link WorkerDriverExtension}, and
+ * does nothing for tests that never leased a session or whose failure was already captured by a
+ * direct call. Register it after WorkerDriverExtension.
+ *
+ * <p>The page source read for the diagnostics is returned to the caller, so a failure is serialized
+ * only once even when {@link ResultReporter} fingerprints it too.
+ */
+public class FailureDiagnostics implements TestExecutionExceptionHandler {
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("diagnostics", "true"));
+    private static final String SELECTOR = System.getProperty("diagnostics.selector", "#container");
+    private static final long SHUTDOWN_GRACE_SECONDS = 15;
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+    private static final Set<Throwable> CAPTURED = Collections.synchronizedSet(
+        Collections.newSetFromMap(new WeakHashMap<>()));
+
+    private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "failure-diagnostics-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(FailureDiagnostics::drain, "failure-diagnostics-drain"));
+    }
+
+    @Override
+    public void handleTestExecutionException(ExtensionContext context, Throwable throwable) throws Throwable {
+        WebDriver driver = WorkerDriverExtension.leasedDriver(context);
+        if (driver != null && !CAPTURED.remove(throwable)) {
+            capture(driver, context.getRequiredTestClass().getSimpleName() + "." + context.getRequiredTestMethod().getName(),
+                throwable);
+        }
+        throw throwable;
+    }
+
+    /**
+     * Reads the diagnostics for a failure named {@code name} from {@code driver} and queues them to be
+     * written. Capture problems are logged, never thrown, so they cannot hide the original failure.
+     * The extension will not capture {@code failure} again when it propagates out of the test.
+     *
+     * @return the page source that was read, or null if capturing is off or it could not be read
+     */
+    public static String capture(WebDriver driver, String name, Throwable failure) {
+        CAPTURED.add(failure);
+        StringBuilder console = new StringBuilder();
+        for (Throwable suppressed : failure.getSuppressed()) {
+            if (suppressed instanceof BrowserConsole.Transcript) {
+                console.append(suppressed.getMessage()).append('\n');
+            }
+        }
+        return capture(driver, name, stackTrace(failure), console.length() == 0 ? null : console.toString());
+    }
+
+    /**
+     * @param console the page's console output, or null if there was none
+     * @return the page source that was read, or null if capturing is off or it could not be read
+     */
+    public static String capture(WebDriver driver, String name, String failure, String console) {
+        if (!ENABLED) {
+            return null;
+        }
+        String pageSource = null;
+        Map<String, byte[]> artifacts = new LinkedHashMap<>();
+        try (PhaseMetrics.Span span = PhaseMetrics.span("diagnostics.capture")) {
+            artifacts.put("failure.txt", utf8(failure));
+            if (console != null) {
+                artifacts.put("console.txt", utf8(console));
+            }
+            try {
+                pageSource = driver.getPageSource();
+                artifacts.put("page-source.html", utf8(pageSource));
+            } catch (RuntimeException e) {
+                artifacts.put("page-source.error.txt", utf8(e.toString()));
+            }
+            try {
+                Object dom = ((JavascriptExecutor) driver).executeScript(
+                    "var element = document.querySelector(arguments[0]);"
+                    + "return element ? element.outerHTML : null;", SELECTOR);
+                if (dom != null) {
+                    artifacts.put("container.html", utf8(dom.toString()));
+                }
+            } catch (RuntimeException e) {
+                artifacts.put("container.error.txt", utf8(e.toString()));
+            }
+            if (driver instanceof TakesScreenshot) {
+                try {
+                    artifacts.put("screenshot.png", ((TakesScreenshot) driver).getScreenshotAs(OutputType.BYTES));
+                } catch (RuntimeException e) {
+                    artifacts.put("screenshot.error.txt", utf8(e.toString()));
+                }
+            }
+        }
+        Path file = directory().resolve(sanitize(name) + "-" + LocalDateTime.now().format(TIMESTAMP) + ".zip");
+        try {
+            WRITER.execute(() -> write(file, artifacts));
+        } catch (RejectedExecutionException e) {
+            System.err.println("Failure diagnostics dropped, JVM is shutting down: " + file);
+        }
+        return pageSource;
+    }
+
+    private static void write(Path file, Map<String, byte[]> artifacts) {
+        try (PhaseMetrics.Span span = PhaseMetrics.span("diagnostics.write")) {
+            Files.createDirectories(file.getParent());
+            Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp);
+                 ZipOutputStream zip = new ZipOutputStream(out)) {
+                for (Map.Entry<String, byte[]> artifact : artifacts.entrySet()) {
+                    zip.putNextEntry(new ZipEntry(artifact.getKey()));
+                    zip.write(artifact.getValue());
+                    zip.closeEntry();
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            System.out.println("Failure diagnostics written to " + file);
+        } catch (IOException e) {
+            System.err.println("Could not write failure diagnostics " + file + ": " + e.getMessage());
+        }
+    }
+
+    private static void drain() {
+        WRITER.shutdown();
+        try {
+            if (!WRITER.awaitTermination(SHUTDOWN_GRACE_SECONDS, TimeUnit.SECONDS)) {
+                System.err.println("Failure diagnostics still being written at exit were dropped");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String stackTrace(Throwable failure) {
+        StringWriter out = new StringWriter();
+        failure.printStackTrace(new PrintWriter(out));
+        return out.toString();
+    }
+
+    private static byte[] utf8(String value) {
+        return String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String sanitize(String name) {
+        return name.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    static Path directory() {
+        return Paths.get(System.getProperty("diagnostics.dir", "target/diagnostics"));
+    }
+}
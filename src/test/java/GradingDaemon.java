@@ -0,0 +1,186 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Long-running grader that keeps the JVM, the discovered browser and driver, the embedded HTTP
+ * server and the warm WebDriver pool resident between submissions. It listens on a loopback port
+ * and speaks a line protocol: the client sends one submission path per line, either a directory
+ * containing {@code Lab.js} or a directory of such directories, and the daemon streams back
+ * <pre>
+ * RESULT &lt;submission result&gt;      one line per submission, as soon as it is graded
+ * DONE &lt;passed&gt;/&lt;total&gt;             after the last submission of that path
+ * ERROR &lt;message&gt;                  when the path cannot be graded at all
+ * </pre>
+ * Start it with {@code mvn -P grading-daemon verify} and submit with {@link GradingClient}, or with
+ * anything that can write a line to a socket. The port (-Dgrading.daemon.port, default
+ * {@value GradingClient#DEFAULT_PORT}; 0 picks a free one) is written to
+ * {@link GradingClient#portFile()} for clients.
+ */
+public class GradingDaemon {
+    private final ServerSocket serverSocket;
+    private final BatchGrader grader;
+    private final ExecutorService connections = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "grading-daemon-connection");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private GradingDaemon(ServerSocket serverSocket, BatchGrader grader) {
+        this.serverSocket = serverSocket;
+        this.grader = grader;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = Integer.getInteger("grading.daemon.port", GradingClient.DEFAULT_PORT);
+        int parallelism = Integer.getInteger("driver.pool.size", 1);
+        boolean useJsEngine = "js".equalsIgnoreCase(System.getProperty("lab.engine", "browser"));
+        File template = SeleniumTest.findHtmlFile().getAbsoluteFile().getParentFile();
+
+        warmUp(useJsEngine);
+
+        // A daemon that was just stopped may still hold the port for a moment.
+        ServerSocket serverSocket = TimeoutScheduler.retry("daemon.bind", () -> {
+            ServerSocket socket = new ServerSocket();
+            try {
+                socket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+                return socket;
+            } catch (IOException e) {
+                socket.close();
+                throw e;
+            }
+        });
+        BatchGrader grader = new BatchGrader(SeleniumTest::sharedDriverPool, template, BulbChecks.ALL,
+            parallelism, useJsEngine);
+        GradingDaemon daemon = new GradingDaemon(serverSocket, grader);
+        Runtime.getRuntime().addShutdownHook(new Thread(daemon::stop, "grading-daemon-stop"));
+
+        writePortFile(serverSocket.getLocalPort());
+        System.out.println("\n=== GRADING DAEMON READY ===");
+        System.out.println("Listening on " + serverSocket.getLocalSocketAddress()
+            + " (port file " + GradingClient.portFile() + ")");
+        daemon.serve();
+    }
+
+    /**
+     * Pays the one-time costs up front: browser discovery, server start and one pooled browser, so
+     * the first submission is as fast as every later one.
+     */
+    private static void warmUp(boolean useJsEngine) throws Exception {
+        try (PhaseMetrics.Span span = PhaseMetrics.span("daemon.warm_up")) {
+            StaticFileServer.shared();
+            if (useJsEngine) {
+                return;
+            }
+            WebDriverPool pool = SeleniumTest.sharedDriverPool();
+            WebDriver driver = pool.lease(Duration.ofMinutes(5));
+            pool.release(driver);
+        }
+    }
+
+    private void serve() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.execute(() -> handle(socket));
+            } catch (SocketException e) {
+                if (!serverSocket.isClosed()) {
+                    System.err.println("Grading daemon socket failed: " + e.getMessage());
+                }
+                return;
+            } catch (IOException e) {
+                System.err.println("Error accepting grading connection: " + e.getMessage());
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (!line.isBlank()) {
+                    gradePath(line.trim(), out);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Grading connection closed: " + e.getMessage());
+        }
+    }
+
+    private void gradePath(String path, PrintWriter out) {
+        File directory = new File(path);
+        List<File> submissions;
+        try {
+            submissions = new File(directory, "Lab.js").isFile()
+                ? List.of(directory)
+                : BatchGrader.findSubmissions(directory);
+        } catch (RuntimeException e) {
+            send(out, "ERROR " + e.getMessage());
+            return;
+        }
+
+        AtomicInteger passed = new AtomicInteger();
+        try (PhaseMetrics.Span span = PhaseMetrics.span("daemon.request")) {
+            grader.gradeAll(submissions, result -> {
+                if (result.isPassed()) {
+                    passed.incrementAndGet();
+                }
+                send(out, "RESULT " + result.toString().replace('\n', ' '));
+            });
+            send(out, "DONE " + passed.get() + "/" + submissions.size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            send(out, "ERROR interrupted");
+        }
+    }
+
+    /**
+     * Results arrive from several grading threads at once; each line is written and flushed whole.
+     */
+    private static void send(PrintWriter out, String line) {
+        synchronized (out) {
+            out.println(line);
+            out.flush();
+        }
+    }
+
+    private void stop() {
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            System.err.println("Error closing grading daemon socket: " + e.getMessage());
+        }
+        connections.shutdownNow();
+        try {
+            Files.deleteIfExists(GradingClient.portFile());
+        } catch (IOException ignored) {}
+    }
+
+    private static void writePortFile(int port) throws IOException {
+        Path file = GradingClient.portFile().toAbsolutePath();
+        Files.createDirectories(file.getParent());
+        Path temp = Files.createTempFile(file.getParent(), "grading-daemon", ".tmp");
+        Files.write(temp, String.valueOf(port).getBytes(StandardCharsets.UTF_8));
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,184 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.Engine;
+import org.graalvm.polyglot.PolyglotException;
+import org.graalvm.polyglot.Source;
+import org.graalvm.polyglot.Value;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.json.Json;
+
+/**
+ * Runs a lab page inside an embedded GraalJS context on top of the in-memory DOM in
+ * {@code dom-shim.js}, without launching a browser. Each instance is one freshly loaded page.
+ * Timers run on a virtual clock, so waits that would time out in a browser finish immediately.
+ */
+public class JsEngineLabPage implements LabPage {
+    private static final String UNSUPPORTED_PREFIX = "UnsupportedDomFeature: ";
+    private static final int MAX_TIMER_RUNS = 10_000;
+    private static final Json JSON = new Json();
+
+    private static Engine engine;
+    private static Source shimSource;
+
+    private final Context context;
+
+    private JsEngineLabPage(Context context) {
+        this.context = context;
+    }
+
+    /**
+     * Loads {@code htmlFile} and the scripts it references. Script sources are looked up in
+     * {@code scriptDirectories} in order, falling back to the HTML file's own directory.
+     */
+    public static JsEngineLabPage load(File htmlFile, File... scriptDirectories) throws IOException {
+        Context context = Context.newBuilder("js")
+            .engine(sharedEngine())
+            .allowAllAccess(false)
+            .build();
+        JsEngineLabPage page = new JsEngineLabPage(context);
+        try {
+            context.eval(shimSource);
+            String html = Files.readString(htmlFile.toPath(), StandardCharsets.UTF_8);
+            String scriptsJson = page.shim("loadDocument", html).asString();
+
+            List<?> scripts = JSON.toType(scriptsJson, List.class);
+            for (Object entry : scripts) {
+                Map<?, ?> script = (Map<?, ?>) entry;
+                Object src = script.get("src");
+                Source source = src == null
+                    ? Source.create("js", String.valueOf(script.get("text")))
+                    : Source.newBuilder("js", locateScript(String.valueOf(src), htmlFile, scriptDirectories)).build();
+                page.evalReportingErrors(source);
+            }
+            page.shim("finishLoading");
+            page.failIfUnsupportedFeatureUsed();
+            return page;
+        } catch (RuntimeException | IOException e) {
+            page.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public Object executeAsyncScript(String script, Duration timeout, Object... args) {
+        try {
+            shim("startAsync", script, JSON.toJson(Arrays.asList(args)));
+            for (int runs = 0; runs <= MAX_TIMER_RUNS; runs++) {
+                failIfUnsupportedFeatureUsed();
+                Value done = shim("pollAsync");
+                if (!done.isNull()) {
+                    return ((Map<?, ?>) JSON.toType(done.asString(), Map.class)).get("result");
+                }
+                if (!shim("runNextTimer").asBoolean()) {
+                    break;
+                }
+            }
+        } catch (PolyglotException e) {
+            throw translate(e);
+        }
+        throw new TimeoutException("Script did not complete in the JavaScript engine");
+    }
+
+    @Override
+    public void close() {
+        context.close(true);
+    }
+
+    /**
+     * Lab code, or a harness script, may catch the shim's error, so the shim also records the first
+     * unsupported feature it was asked for and the harness checks it after every step.
+     */
+    private void failIfUnsupportedFeatureUsed() {
+        Value feature = shim("unsupportedFeature");
+        if (!feature.isNull()) {
+            throw new UnsupportedDomFeatureException("DOM shim does not support " + feature.asString(), null);
+        }
+    }
+
+    private Value shim(String function, Object... args) {
+        try {
+            return context.getBindings("js").getMember("__shim").getMember(function).execute(args);
+        } catch (PolyglotException e) {
+            throw translate(e);
+        }
+    }
+
+    /**
+     * Mirrors a browser: an uncaught error in a lab script is reported to the page's error listeners
+     * and the rest of the page keeps loading.
+     */
+    private void evalReportingErrors(Source source) {
+        try {
+            context.eval(source);
+        } catch (PolyglotException e) {
+            RuntimeException translated = translate(e);
+            if (!(translated instanceof LabScriptException)) {
+                throw translated;
+            }
+            shim("reportError", "Uncaught " + e.getMessage());
+        }
+    }
+
+    private static RuntimeException translate(PolyglotException e) {
+        String message = String.valueOf(e.getMessage());
+        int unsupported = message.indexOf(UNSUPPORTED_PREFIX);
+        if (unsupported >= 0) {
+            return new UnsupportedDomFeatureException(
+                "DOM shim does not support " + message.substring(unsupported + UNSUPPORTED_PREFIX.length()), e);
+        }
+        if (e.isGuestException() && !e.isInternalError()) {
+            return new LabScriptException(message, e);
+        }
+        return e;
+    }
+
+    private static File locateScript(String src, File htmlFile, File... scriptDirectories) throws IOException {
+        if (src.contains("://") || src.startsWith("//")) {
+            throw new UnsupportedDomFeatureException("DOM shim does not support remote script " + src, null);
+        }
+        for (File directory : scriptDirectories) {
+            File candidate = new File(directory, src);
+            if (candidate.isFile()) {
+                return candidate;
+            }
+        }
+        File sibling = new File(htmlFile.getAbsoluteFile().getParentFile(), src);
+        if (!sibling.isFile()) {
+            throw new IOException("Script " + src + " referenced by " + htmlFile + " not found");
+        }
+        return sibling;
+    }
+
+    private static synchronized Engine sharedEngine() throws IOException {
+        if (engine == null) {
+            engine = Engine.newBuilder()
+                .option("engine.WarnInterpreterOnly", "false")
+                .build();
+            try (InputStream in = JsEngineLabPage.class.getResourceAsStream("/dom-shim.js")) {
+                if (in == null) {
+                    throw new IOException("dom-shim.js not found on the test classpath");
+                }
+                shimSource = Source.newBuilder("js", new String(in.readAllBytes(), StandardCharsets.UTF_8), "dom-shim.js")
+                    .build();
+            }
+        }
+        return engine;
+    }
+
+    /**
+     * An error thrown by the lab's own JavaScript, as opposed to a shim or engine failure.
+     */
+    public static class LabScriptException extends RuntimeException {
+        LabScriptException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
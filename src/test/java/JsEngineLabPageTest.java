@@ -0,0 +1,225 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openqa.selenium.TimeoutException;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Loads small pages into the embedded JavaScript engine and checks the DOM shim behaves like a
+ * browser where the labs rely on it, and refuses what it does not implement.
+ */
+public class JsEngineLabPageTest {
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+    private static final String LAB_JS =
+        "function addItem(text) {"
+        + "  var li = document.createElement('li');"
+        + "  li.className = 'item';"
+        + "  li.textContent = text;"
+        + "  document.getElementById('list').appendChild(li);"
+        + "}"
+        + "addItem('lab');"
+        + "document.addEventListener('DOMContentLoaded', function () { addItem('loaded'); });";
+
+    @TempDir
+    Path root;
+
+    @Test
+    public void runsScriptsInDocumentOrderAndFiresLoadEvents() throws IOException {
+        File html = page("<title>Lab &amp; test</title><ul id=\"list\" class=\"items main\"></ul>"
+            + "<script src=\"Lab.js\"></script><script>addItem('inline');</script>");
+        write(root.resolve("Lab.js"), LAB_JS);
+
+        try (JsEngineLabPage page = JsEngineLabPage.load(html)) {
+            Object result = page.executeAsyncScript("arguments[0]([document.title, document.readyState,"
+                + " Array.prototype.map.call(document.querySelectorAll('ul.items.main > li.item'),"
+                + " function (li) { return li.textContent; })]);",
+                TIMEOUT);
+            assertEquals(Arrays.asList("Lab & test", "complete", Arrays.asList("lab", "inline", "loaded")), result);
+        }
+    }
+
+    @Test
+    public void prefersScriptsFromTheSubmissionDirectory() throws IOException {
+        File html = page("<ul id=\"list\"></ul><script src=\"Lab.js\"></script>");
+        write(root.resolve("Lab.js"), LAB_JS);
+        Path submission = Files.createDirectories(root.resolve("submission"));
+        write(submission.resolve("Lab.js"), "document.getElementById('list').textContent = 'submission';");
+
+        try (JsEngineLabPage page = JsEngineLabPage.load(html, submission.toFile())) {
+            assertEquals("submission", page.executeAsyncScript(
+                "arguments[0](document.getElementById('list').textContent);", TIMEOUT));
+        }
+    }
+
+    @Test
+    public void reportsUncaughtErrorsAndKeepsLoading() throws IOException {
+        File html = page("<script>throw new Error('boom');</script><script>window.after = true;</script>");
+
+        try (JsEngineLabPage page = JsEngineLabPage.load(html)) {
+            Object result = page.executeAsyncScript("arguments[0]([window.__labErrors.length,"
+                + " window.__labErrors[0].indexOf('boom') >= 0, window.after]);", TIMEOUT);
+            assertEquals(Arrays.asList(1L, true, true), result);
+        }
+    }
+
+    @Test
+    public void passesArgumentsAndDispatchesClicks() throws IOException {
+        File html = page("<button id=\"bulb\">off</button><script>"
+            + "document.getElementById('bulb').addEventListener('click', function (event) {"
+            + "  event.target.textContent = event.target.textContent === 'off' ? 'on' : 'off';"
+            + "});</script>");
+
+        try (JsEngineLabPage page = JsEngineLabPage.load(html)) {
+            Object result = page.executeAsyncScript("var button = document.querySelector(arguments[0]);"
+                + "for (var i = 0; i < arguments[1]; i++) { button.click(); }"
+                + "arguments[2](button.textContent);", TIMEOUT, "#bulb", 3);
+            assertEquals("on", result);
+        }
+    }
+
+    @Test
+    public void bubblesEventsToAncestorsDocumentAndWindow() throws IOException {
+        File html = page("<div id=\"container\"><button id=\"bulb\">off</button></div><script>"
+            + "var log = [];"
+            + "document.getElementById('container').addEventListener('click', function (event) {"
+            + "  log.push('container:' + event.target.id + ':' + event.currentTarget.id);"
+            + "});"
+            + "document.addEventListener('click', function () { log.push('document'); });"
+            + "window.addEventListener('click', function () { log.push('window'); });"
+            + "window.addEventListener('DOMContentLoaded', function () { log.push('DOMContentLoaded'); });"
+            + "</script>");
+
+        try (JsEngineLabPage page = JsEngineLabPage.load(html)) {
+            Object result = page.executeAsyncScript(
+                "document.getElementById('bulb').click(); arguments[0](log);", TIMEOUT);
+            assertEquals(Arrays.asList("DOMContentLoaded", "container:bulb:container", "document", "window"), result);
+        }
+    }
+
+    @Test
+    public void stopsPropagationWhenAskedTo() throws IOException {
+        File html = page("<div id=\"container\"><button id=\"bulb\">off</button></div><script>"
+            + "var log = [];"
+            + "var bulb = document.getElementById('bulb');"
+            + "bulb.addEventListener('click', function (event) { log.push('first'); event.stopPropagation(); });"
+            + "bulb.addEventListener('click', function () { log.push('second'); });"
+            + "document.addEventListener('click', function () { log.push('document'); });"
+            + "</script>");
+
+        try (JsEngineLabPage page = JsEngineLabPage.load(html)) {
+            assertEquals(Arrays.asList("first", "second"), page.executeAsyncScript(
+                "document.getElementById('bulb').click(); arguments[0](log);", TIMEOUT));
+        }
+    }
+
+    @Test
+    public void returnsNodeListsWithoutArrayMethods() throws IOException {
+        File html = page("<ul id=\"list\"><li>a</li><li>b</li></ul>");
+
+        try (JsEngineLabPage page = JsEngineLabPage.load(html)) {
+            Object result = page.executeAsyncScript("var list = document.getElementById('list');"
+                + "var items = list.querySelectorAll('li'), children = list.children, seen = [];"
+                + "items.forEach(function (li, i) { seen.push(li.textContent + i); });"
+                + "list.appendChild(document.createElement('li'));"
+                + "arguments[0]([seen, items.length, children.length, children.item(1).textContent,"
+                + " Array.isArray(items), items instanceof NodeList, children instanceof HTMLCollection]);", TIMEOUT);
+            assertEquals(Arrays.asList(Arrays.asList("a0", "b1"), 2L, 3L, "b", false, true, true), result);
+        }
+        for (String script : new String[] {
+            "arguments[0](document.querySelectorAll('li').map(function (li) { return li.textContent; }));",
+            "arguments[0](document.getElementById('list').children.filter(Boolean).length);",
+            "arguments[0](document.getElementsByTagName('li').forEach);"}) {
+            try (JsEngineLabPage page = JsEngineLabPage.load(html)) {
+                assertThrows(UnsupportedDomFeatureException.class, () -> page.executeAsyncScript(script, TIMEOUT), script);
+            }
+        }
+    }
+
+    @Test
+    public void serializesAndParsesMarkup() throws IOException {
+        File html = page("<div id=\"box\"></div>");
+
+        try (JsEngineLabPage page = JsEngineLabPage.load(html)) {
+            Object result = page.executeAsyncScript("var box = document.getElementById('box');"
+                + "box.textContent = '<b> & co';"
+                + "var escaped = box.innerHTML;"
+                + "box.innerHTML = '<span class=\"a\">hi</span><br>';"
+                + "arguments[0]([escaped, box.querySelector('span.a').textContent, box.children.length, box.outerHTML]);",
+                TIMEOUT);
+            assertEquals(Arrays.asList("&lt;b&gt; &amp; co", "hi", 2L,
+                "<div id=\"box\"><span class=\"a\">hi</span><br></div>"), result);
+        }
+    }
+
+    @Test
+    public void runsTimersOnAVirtualClock() throws IOException {
+        File html = page("<p></p>");
+
+        try (JsEngineLabPage page = JsEngineLabPage.load(html)) {
+            long start = System.nanoTime();
+            Object result = page.executeAsyncScript("var done = arguments[0], order = [];"
+                + "setTimeout(function () { order.push('hour'); done(order); }, 3600000);"
+                + "setTimeout(function () { order.push('second'); }, 1000);", TIMEOUT);
+            assertEquals(Arrays.asList("second", "hour"), result);
+            assertTrue(System.nanoTime() - start < TIMEOUT.toNanos(), "timers should not wait in real time");
+        }
+    }
+
+    @Test
+    public void timesOutWhenTheCallbackIsNeverCalled() throws IOException {
+        File html = page("<p></p>");
+
+        try (JsEngineLabPage page = JsEngineLabPage.load(html)) {
+            assertThrows(TimeoutException.class, () -> page.executeAsyncScript("var done = arguments[0];", TIMEOUT));
+        }
+    }
+
+    @Test
+    public void refusesUnsupportedFeaturesEvenWhenTheLabCatchesTheError() throws IOException {
+        File html = page("<script>try { localStorage.getItem('x'); } catch (e) {}</script>");
+
+        UnsupportedDomFeatureException e = assertThrows(UnsupportedDomFeatureException.class,
+            () -> JsEngineLabPage.load(html));
+        assertTrue(e.getMessage().contains("window.localStorage"), e.getMessage());
+    }
+
+    @Test
+    public void refusesCapturingListeners() throws IOException {
+        File html = page("<script>document.addEventListener('click', function () {}, true);</script>");
+
+        assertThrows(UnsupportedDomFeatureException.class, () -> JsEngineLabPage.load(html));
+    }
+
+    @Test
+    public void refusesUnsupportedSelectorsRemoteScriptsAndReturnedNodes() throws IOException {
+        assertThrows(UnsupportedDomFeatureException.class,
+            () -> JsEngineLabPage.load(page("<script src=\"https://example.com/lib.js\"></script>")));
+
+        try (JsEngineLabPage page = JsEngineLabPage.load(page("<p></p>"))) {
+            assertThrows(UnsupportedDomFeatureException.class,
+                () -> page.executeAsyncScript("arguments[0](document.querySelectorAll('p:first-child'));", TIMEOUT));
+        }
+        try (JsEngineLabPage page = JsEngineLabPage.load(page("<p></p>"))) {
+            assertThrows(UnsupportedDomFeatureException.class,
+                () -> page.executeAsyncScript("arguments[0](document.querySelector('p'));", TIMEOUT));
+        }
+    }
+
+    private File page(String body) throws IOException {
+        Path html = root.resolve("index.html");
+        write(html, "<!DOCTYPE html><html><head></head><body>" + body + "</body></html>");
+        return html.toFile();
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
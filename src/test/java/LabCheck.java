@@ -0,0 +1,30 @@
+import java.util.function.Consumer;
+
+/**
+ * A named check that runs against a freshly loaded lab page and throws an {@link AssertionError}
+ * when the page does not behave as expected.
+ */
+public interface LabCheck {
+    String name();
+
+    void run(LabPage page);
+
+    static LabCheck of(String name, Consumer<LabPage> body) {
+        return new LabCheck() {
+            @Override
+            public String name() {
+                return name;
+            }
+
+            @Override
+            public void run(LabPage page) {
+                body.accept(page);
+            }
+
+            @Override
+            public String toString() {
+                return name;
+            }
+        };
+    }
+}
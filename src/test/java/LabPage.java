@@ -0,0 +1,17 @@
+import java.time.Duration;
+
+/**
+ * A loaded lab page that checks can run scripts against, backed either by a real browser session
+ * ({@link BrowserLabPage}) or by the embedded JavaScript engine ({@link JsEngineLabPage}).
+ */
+public interface LabPage extends AutoCloseable {
+    /**
+     * Runs {@code script} with WebDriver executeAsyncScript semantics: the callback is passed as the
+     * last argument and its value is returned as plain maps, lists, strings, numbers and booleans.
+     */
+    Object executeAsyncScript(String script, Duration timeout, Object... args);
+
+    @Override
+    default void close() {
+    }
+}
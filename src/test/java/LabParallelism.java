@@ -0,0 +1,45 @@
+import org.junit.platform.engine.ConfigurationParameters;
+import org.junit.platform.engine.support.hierarchical.ParallelExecutionConfiguration;
+import org.junit.platform.engine.support.hierarchical.ParallelExecutionConfigurationStrategy;
+
+/**
+ * Sizes the JUnit worker pool to the WebDriver pool (-Ddriver.pool.size, default 1), so every worker
+ * can hold a browser session without waiting for another. In the JS engine no browser is needed and
+ * one worker per core is used instead. Selected in junit-platform.properties.
+ */
+public class LabParallelism implements ParallelExecutionConfigurationStrategy {
+
+    @Override
+    public ParallelExecutionConfiguration createConfiguration(ConfigurationParameters configurationParameters) {
+        int parallelism = "js".equalsIgnoreCase(configurationParameters.get("lab.engine").orElse("browser"))
+            ? Runtime.getRuntime().availableProcessors()
+            : configurationParameters.get("driver.pool.size", Integer::parseInt).orElse(1);
+        int workers = Math.max(1, parallelism);
+        return new ParallelExecutionConfiguration() {
+            @Override
+            public int getParallelism() {
+                return workers;
+            }
+
+            @Override
+            public int getMinimumRunnable() {
+                return workers;
+            }
+
+            @Override
+            public int getMaxPoolSize() {
+                return workers + 256;
+            }
+
+            @Override
+            public int getCorePoolSize() {
+                return workers;
+            }
+
+            @Override
+            public int getKeepAliveSeconds() {
+                return 30;
+            }
+        };
+    }
+}
@@ -0,0 +1,156 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Named sets of browser command-line flags. -Dbrowser.launchProfile picks the set every backend
+ * launches with; {@link #DEFAULT} is the flag set the harness has always used.
+ *
+ * <ul>
+ *   <li>{@code fastest-headless} turns off background networking, component updates, first-run
+ *       work and image loading, none of which a lab check needs.</li>
+ *   <li>{@code low-memory} adds to that a V8 heap cap (-Dbrowser.jsHeapMb, default 256), a single
+ *       renderer process and no site isolation, for packing many sessions onto one node.</li>
+ *   <li>{@code rendering-accurate} keeps images and pins the colour profile, device scale and font
+ *       hinting, for checks that compare screenshots.</li>
+ * </ul>
+ *
+ * Every --disable-features value is merged into a single flag, since the browser only honours the
+ * last one it is given. LaunchProfileComparisonTest measures startup time and memory per profile.
+ */
+public enum LaunchProfile {
+    DEFAULT,
+    FASTEST_HEADLESS,
+    LOW_MEMORY,
+    RENDERING_ACCURATE;
+
+    private static final String OS_ARCH = System.getProperty("os.arch").toLowerCase(Locale.ROOT);
+    private static final boolean IS_ARM = OS_ARCH.contains("aarch64") || OS_ARCH.contains("arm");
+    private static final String DISABLE_FEATURES = "--disable-features=";
+
+    private static final String[] COMMON_ARGUMENTS = {
+        "--headless=new",
+        "--no-sandbox",
+        "--disable-dev-shm-usage",
+        "--disable-gpu",
+        "--window-size=1920,1080",
+        "--disable-extensions",
+        "--disable-web-security",
+        "--allow-file-access-from-files",
+        "--allow-running-insecure-content",
+        "--disable-features=TranslateUI,VizDisplayCompositor",
+        "--disable-background-timer-throttling",
+        "--disable-backgrounding-occluded-windows",
+        "--disable-renderer-backgrounding"
+    };
+
+    private static final String[] ARM_ARGUMENTS = {
+        "--use-gl=swiftshader",
+        "--disable-software-rasterizer"
+    };
+
+    private static final String[] TRIMMED_ARGUMENTS = {
+        "--disable-background-networking",
+        "--disable-component-update",
+        "--disable-default-apps",
+        "--disable-sync",
+        "--disable-breakpad",
+        "--disable-client-side-phishing-detection",
+        "--disable-domain-reliability",
+        "--no-first-run",
+        "--no-default-browser-check",
+        "--metrics-recording-only",
+        "--mute-audio",
+        "--blink-settings=imagesEnabled=false",
+        "--disable-features=OptimizationHints,MediaRouter,Translate,AutofillServerCommunication"
+    };
+
+    private static final String[] RENDERING_ARGUMENTS = {
+        "--no-first-run",
+        "--no-default-browser-check",
+        "--force-color-profile=srgb",
+        "--force-device-scale-factor=1",
+        "--font-render-hinting=none"
+    };
+
+    /**
+     * The profile named by -Dbrowser.launchProfile, {@link #DEFAULT} if it is not set.
+     */
+    public static LaunchProfile selected() {
+        return forName(System.getProperty("browser.launchProfile", "default"));
+    }
+
+    public static LaunchProfile forName(String name) {
+        for (LaunchProfile profile : values()) {
+            if (profile.profileName().equalsIgnoreCase(name.trim())) {
+                return profile;
+            }
+        }
+        throw new IllegalArgumentException("Unknown launch profile " + name + "; available: " + Arrays.toString(values()));
+    }
+
+    /**
+     * The name used on the command line, e.g. {@code fastest-headless}.
+     */
+    public String profileName() {
+        return name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+
+    public String[] arguments() {
+        List<String> arguments = new ArrayList<>(Arrays.asList(COMMON_ARGUMENTS));
+        if (IS_ARM) {
+            arguments.addAll(Arrays.asList(ARM_ARGUMENTS));
+        }
+        switch (this) {
+            case FASTEST_HEADLESS:
+                arguments.addAll(Arrays.asList(TRIMMED_ARGUMENTS));
+                break;
+            case LOW_MEMORY:
+                arguments.addAll(Arrays.asList(TRIMMED_ARGUMENTS));
+                arguments.add("--js-flags=--max-old-space-size=" + Integer.getInteger("browser.jsHeapMb", 256));
+                arguments.add("--renderer-process-limit=1");
+                arguments.add("--disable-site-isolation-trials");
+                arguments.add("--disable-features=IsolateOrigins,site-per-process,BackForwardCache");
+                break;
+            case RENDERING_ACCURATE:
+                arguments.addAll(Arrays.asList(RENDERING_ARGUMENTS));
+                break;
+            default:
+                break;
+        }
+        return mergeDisabledFeatures(arguments).toArray(new String[0]);
+    }
+
+    /**
+     * Replaces every --disable-features flag with one listing all their features, without
+     * duplicates, at the position of the first.
+     */
+    static List<String> mergeDisabledFeatures(List<String> arguments) {
+        Set<String> features = new LinkedHashSet<>();
+        List<String> merged = new ArrayList<>();
+        int position = -1;
+        for (String argument : arguments) {
+            if (argument.startsWith(DISABLE_FEATURES)) {
+                features.addAll(Arrays.asList(argument.substring(DISABLE_FEATURES.length()).split(",")));
+                if (position < 0) {
+                    position = merged.size();
+                    merged.add(null);
+                }
+            } else {
+                merged.add(argument);
+            }
+        }
+        if (position >= 0) {
+            merged.set(position, DISABLE_FEATURES + String.join(",", features));
+        }
+        return merged;
+    }
+
+    @Override
+    public String toString() {
+        return profileName();
+    }
+}
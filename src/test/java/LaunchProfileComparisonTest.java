@@ -0,0 +1,146 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.ui.ExpectedConditions;
+import org.openqa.selenium.support.ui.WebDriverWait;
+
+/**
+ * Launches the browser with each {@link LaunchProfile} and reports how long it took to get from
+ * launch to a loaded lab page and how much memory the browser's processes held afterwards.
+ *
+ * <p>Run with -Dlaunch.compare=all, or a comma-separated list of profile names, and
+ * -Dlaunch.compare.runs (default 3) launches per profile. Memory is the summed resident set of the
+ * browser and its child processes, read from /proc, so it is only reported on Linux; pages shared
+ * between the processes are counted once per process, which overstates the total but ranks the
+ * profiles fairly.
+ */
+public class LaunchProfileComparisonTest {
+
+    @Test
+    public void compareLaunchProfiles() throws Exception {
+        String requested = System.getProperty("launch.compare");
+        Assumptions.assumeTrue(requested != null, "Set -Dlaunch.compare=all|<profile,...> to compare launch profiles");
+
+        List<LaunchProfile> profiles = new ArrayList<>();
+        if ("all".equalsIgnoreCase(requested.trim())) {
+            profiles.addAll(Arrays.asList(LaunchProfile.values()));
+        } else {
+            for (String name : requested.split(",")) {
+                profiles.add(LaunchProfile.forName(name));
+            }
+        }
+        int runs = Integer.getInteger("launch.compare.runs", 3);
+
+        BrowserConfig config = BrowserDiscovery.discover();
+        BrowserBackend backend = BrowserBackend.forConfig(config);
+        File htmlFile = SeleniumTest.findHtmlFile().getAbsoluteFile();
+        String url = StaticFileServer.shared().mount("launch", htmlFile.getParentFile()) + htmlFile.getName();
+        ProfileTemplate template = ProfileTemplate.forBrowser(config,
+            profile -> backend.launch(config, LaunchProfile.DEFAULT, profile));
+
+        Map<LaunchProfile, List<long[]>> samples = new LinkedHashMap<>();
+        for (int run = 0; run < runs; run++) {
+            // Interleave the profiles so that drift over the run (page cache, thermal) hits all of them.
+            for (LaunchProfile launchProfile : profiles) {
+                samples.computeIfAbsent(launchProfile, key -> new ArrayList<>())
+                    .add(measure(backend, config, launchProfile, template, url));
+            }
+        }
+
+        System.out.println("\n=== LAUNCH PROFILE COMPARISON (" + backend.name() + ", " + runs + " runs) ===");
+        System.out.println(String.format(Locale.ROOT, "%-20s %14s %14s %14s", "profile", "startup p50 ms",
+            "startup max ms", "RSS p50 MiB"));
+        for (Map.Entry<LaunchProfile, List<long[]>> entry : samples.entrySet()) {
+            List<Long> startup = new ArrayList<>();
+            List<Long> rss = new ArrayList<>();
+            for (long[] sample : entry.getValue()) {
+                startup.add(sample[0]);
+                if (sample[1] >= 0) {
+                    rss.add(sample[1]);
+                }
+            }
+            Collections.sort(startup);
+            Collections.sort(rss);
+            System.out.println(String.format(Locale.ROOT, "%-20s %14.1f %14.1f %14s", entry.getKey(),
+                startup.get(startup.size() / 2) / 1e6, startup.get(startup.size() - 1) / 1e6,
+                rss.isEmpty() ? "n/a" : String.format(Locale.ROOT, "%.1f", rss.get(rss.size() / 2) / (1024.0 * 1024.0))));
+        }
+    }
+
+    /**
+     * One launch of {@code launchProfile}: returns the nanoseconds from launch to a loaded lab page,
+     * and the browser's resident bytes at that point (-1 if unknown).
+     */
+    private static long[] measure(BrowserBackend backend, BrowserConfig config, LaunchProfile launchProfile,
+                                  ProfileTemplate template, String url) throws Exception {
+        try (AdmissionControl.Permit permit = AdmissionControl.acquire()) {
+            Path profile = template.newProfile();
+            WebDriver driver = null;
+            try {
+                long start = System.nanoTime();
+                driver = backend.launch(config, launchProfile, profile);
+                driver.manage().timeouts().pageLoadTimeout(TimeoutScheduler.timeout("page.load", Duration.ofSeconds(60)));
+                driver.get(url);
+                new WebDriverWait(driver, TimeoutScheduler.timeout("page.load", Duration.ofSeconds(30)))
+                    .until(ExpectedConditions.presenceOfElementLocated(By.tagName("body")));
+                long startup = System.nanoTime() - start;
+                PhaseMetrics.record("launch." + launchProfile.profileName(), startup);
+                return new long[] {startup, residentBytes(profile)};
+            } finally {
+                if (driver != null) {
+                    try {
+                        driver.quit();
+                    } catch (RuntimeException e) {
+                        System.err.println("Error quitting WebDriver: " + e.getMessage());
+                    }
+                }
+                BrowserReaper.reap(profile);
+            }
+        }
+    }
+
+    private static long residentBytes(Path profile) {
+        Set<ProcessHandle> processes = new LinkedHashSet<>();
+        for (ProcessHandle browser : BrowserReaper.processesUsing(profile)) {
+            processes.add(browser);
+            browser.descendants().forEach(processes::add);
+        }
+        if (processes.isEmpty()) {
+            return -1;
+        }
+        long total = 0;
+        for (ProcessHandle process : processes) {
+            Path status = Paths.get("/proc", String.valueOf(process.pid()), "status");
+            try {
+                for (String line : Files.readAllLines(status)) {
+                    if (line.startsWith("VmRSS:")) {
+                        total += Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+                        break;
+                    }
+                }
+            } catch (IOException | NumberFormatException e) {
+                if (!Files.isDirectory(Paths.get("/proc"))) {
+                    return -1;
+                }
+                // The process exited between listing and reading; it holds no memory any more.
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,53 @@
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LaunchProfileTest {
+
+    @Test
+    public void mergesDisabledFeaturesIntoTheFirstFlag() {
+        List<String> merged = LaunchProfile.mergeDisabledFeatures(Arrays.asList(
+            "--headless=new",
+            "--disable-features=TranslateUI,VizDisplayCompositor",
+            "--no-sandbox",
+            "--disable-features=Translate,TranslateUI",
+            "--mute-audio",
+            "--disable-features=BackForwardCache"));
+
+        assertEquals(Arrays.asList(
+            "--headless=new",
+            "--disable-features=TranslateUI,VizDisplayCompositor,Translate,BackForwardCache",
+            "--no-sandbox",
+            "--mute-audio"), merged);
+    }
+
+    @Test
+    public void leavesArgumentsWithoutDisabledFeaturesAlone() {
+        List<String> arguments = Arrays.asList("--headless=new", "--disable-gpu", "--disable-features-extra");
+
+        assertEquals(arguments, LaunchProfile.mergeDisabledFeatures(arguments));
+        assertEquals(Arrays.asList(), LaunchProfile.mergeDisabledFeatures(Arrays.asList()));
+    }
+
+    @Test
+    public void everyProfileHasOneDisabledFeaturesFlag() {
+        for (LaunchProfile profile : LaunchProfile.values()) {
+            long flags = Arrays.stream(profile.arguments()).filter(a -> a.startsWith("--disable-features=")).count();
+            assertEquals(1L, flags, profile + " has " + flags + " --disable-features flags");
+            assertTrue(Arrays.asList(profile.arguments()).contains("--headless=new"), profile.profileName());
+        }
+        assertTrue(Arrays.asList(LaunchProfile.LOW_MEMORY.arguments())
+            .contains("--disable-features=TranslateUI,VizDisplayCompositor,OptimizationHints,MediaRouter,Translate,"
+                + "AutofillServerCommunication,IsolateOrigins,site-per-process,BackForwardCache"));
+    }
+
+    @Test
+    public void findsProfilesByTheirCommandLineName() {
+        assertEquals(LaunchProfile.FASTEST_HEADLESS, LaunchProfile.forName(" Fastest-Headless "));
+        assertEquals("rendering-accurate", LaunchProfile.RENDERING_ACCURATE.profileName());
+        assertThrows(IllegalArgumentException.class, () -> LaunchProfile.forName("turbo"));
+    }
+}
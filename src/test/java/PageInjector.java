@@ -0,0 +1,122 @@
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.devtools.Command;
+import org.openqa.selenium.devtools.DevTools;
+import org.openqa.selenium.devtools.Event;
+import org.openqa.selenium.devtools.HasDevTools;
+import org.openqa.selenium.json.Json;
+
+/**
+ * Loads lab pages without a socket or disk read per request. With {@code -Dlab.load=inject} the
+ * browser is pointed at {@value #ORIGIN} instead of the embedded server; every request to that origin
+ * is paused over the DevTools {@code Fetch} domain and fulfilled from the {@link StaticFileServer}'s
+ * in-memory cache, which holds each file once and re-reads it only when its modification time or size
+ * changes. Mounts are shared with the server, so the same paths work on both origins.
+ *
+ * <p>Interception is enabled once per browser session and stays on for later leases. A
+ * {@link CdpDriver} is intercepted over its own connection; since its events arrive on the socket's
+ * receiving thread, requests are fulfilled on a separate thread. Sessions without DevTools, and tabs
+ * of a shared browser, keep loading from the embedded server.
+ */
+public final class PageInjector {
+    static final String ORIGIN = "http://lab.invalid";
+
+    private static final boolean ENABLED = "inject".equalsIgnoreCase(System.getProperty("lab.load", "serve"));
+    private static final Event<Map<String, Object>> REQUEST_PAUSED =
+        new Event<>("Fetch.requestPaused", input -> input.read(Json.MAP_TYPE));
+    private static final Map<WebDriver, Boolean> INTERCEPTING = Collections.synchronizedMap(new WeakHashMap<>());
+    private static final ExecutorService CDP_FULFILLER = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "page-injector");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private PageInjector() {
+    }
+
+    /**
+     * Returns the URL {@code driver} should load for {@code servedUrl}, a URL on the embedded server:
+     * the same path on {@value #ORIGIN} when injection is enabled and available, else {@code servedUrl}.
+     */
+    public static String urlFor(WebDriver driver, String servedUrl) {
+        URI uri = URI.create(servedUrl);
+        if (!ENABLED || !"http".equals(uri.getScheme()) || !intercept(driver)) {
+            return servedUrl;
+        }
+        return ORIGIN + uri.getRawPath();
+    }
+
+    private static boolean intercept(WebDriver driver) {
+        synchronized (INTERCEPTING) {
+            Boolean intercepting = INTERCEPTING.get(driver);
+            if (intercepting == null) {
+                intercepting = enable(driver);
+                INTERCEPTING.put(driver, intercepting);
+            }
+            return intercepting;
+        }
+    }
+
+    private static boolean enable(WebDriver driver) {
+        if (!(driver instanceof HasDevTools || driver instanceof CdpDriver)
+            || "tabs".equalsIgnoreCase(System.getProperty("driver.pool.mode"))) {
+            return false;
+        }
+        Map<String, Object> patterns = Map.of("patterns",
+            List.of(Map.of("urlPattern", ORIGIN + "/*", "requestStage", "Request")));
+        try {
+            StaticFileServer server = StaticFileServer.shared();
+            if (driver instanceof CdpDriver) {
+                CdpDriver cdp = (CdpDriver) driver;
+                cdp.onEvent("Fetch.requestPaused",
+                    paused -> CDP_FULFILLER.execute(() -> fulfill(cdp::send, server, paused)));
+                cdp.send("Fetch.enable", patterns);
+                return true;
+            }
+            DevTools devTools = ((HasDevTools) driver).getDevTools();
+            devTools.createSessionIfThereIsNotOne(driver.getWindowHandle());
+            BiConsumer<String, Map<String, Object>> send = (method, params) -> devTools.send(new Command<Void>(method, params));
+            devTools.addListener(REQUEST_PAUSED, paused -> fulfill(send, server, paused));
+            devTools.send(new Command<Void>("Fetch.enable", patterns));
+            return true;
+        } catch (Exception e) {
+            System.out.println("Page injection unavailable, loading from the embedded server: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Answers one paused request, sending the Fetch commands through {@code send}.
+     */
+    private static void fulfill(BiConsumer<String, Map<String, Object>> send, StaticFileServer server,
+                                Map<String, Object> paused) {
+        Object requestId = paused.get("requestId");
+        Map<?, ?> request = (Map<?, ?>) paused.get("request");
+        try (PhaseMetrics.Span span = PhaseMetrics.span("inject.fulfill")) {
+            StaticFileServer.CachedFile file = server.find(URI.create(String.valueOf(request.get("url"))));
+            List<Map<String, Object>> headers = new ArrayList<>();
+            headers.add(Map.of("name", "Cache-Control", "value", "no-cache"));
+            if (file == null) {
+                send.accept("Fetch.fulfillRequest", Map.of(
+                    "requestId", requestId, "responseCode", 404, "responseHeaders", headers));
+                return;
+            }
+            headers.add(Map.of("name", "Content-Type", "value", file.contentType));
+            send.accept("Fetch.fulfillRequest", Map.of(
+                "requestId", requestId, "responseCode", 200, "responseHeaders", headers, "body", file.base64()));
+        } catch (Exception e) {
+            System.err.println("Could not fulfill " + request.get("url") + ": " + e.getMessage());
+            try {
+                send.accept("Fetch.failRequest", Map.of("requestId", requestId, "errorReason", "Failed"));
+            } catch (RuntimeException ignored) {}
+        }
+    }
+}
@@ -0,0 +1,204 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.chromium.HasCdp;
+
+/**
+ * Resets a loaded lab page to its just-loaded state in place, so consecutive checks can share one
+ * navigation instead of paying for load, parse and script evaluation each time.
+ *
+ * <p>{@link #capture} keeps, inside the page itself, deep clones of the children of every root in
+ * -Dlab.snapshot.roots (default {@code #container}) and the values of the global bindings in
+ * -Dlab.snapshot.globals (default {@code counter}, the lab's only mutable global). {@link #restore}
+ * puts those back. The roots are refilled rather than replaced, so references the lab script holds
+ * to them stay valid.
+ *
+ * <p>Every other global binding must be left exactly as it was: the page's own window properties
+ * and its top-level {@code let}, {@code const} and {@code class} bindings, which are listed through
+ * DevTools ({@code Runtime.globalLexicalScopeNames}). Their values are fingerprinted at capture, by
+ * value for primitives and plain data and by identity for functions and host objects, and compared
+ * on restore. Restoring is refused, and the caller reloads, when the page is a different one, has
+ * raised an error, changed the DOM outside the roots, added a window property or changed any of
+ * those bindings, or when a listed global is no longer assignable. Pages in a driver without
+ * DevTools are never snapshotted, since their lexical bindings cannot be listed.
+ * -Dlab.snapshot=false always reloads.
+ *
+ * <p>Event listeners that a check adds to {@code window} or {@code document} cannot be enumerated
+ * from the page and are not undone.
+ */
+public final class PageSnapshot {
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("lab.snapshot", "true"));
+    private static final List<String> ROOTS = list(System.getProperty("lab.snapshot.roots", "#container"));
+    private static final List<String> GLOBALS = list(System.getProperty("lab.snapshot.globals", "counter"));
+
+    private static final String COMMON =
+        "var roots = arguments[0], globals = arguments[1];"
+        + "function outside() {"
+        + "  var copy = document.body.cloneNode(true);"
+        + "  for (var i = 0; i < roots.length; i++) {"
+        + "    var root = copy.querySelector(roots[i]);"
+        + "    if (root) { root.textContent = ''; }"
+        + "  }"
+        + "  return copy.innerHTML;"
+        + "}"
+        + "function read(name) {"
+        + "  return (0, eval)('typeof ' + name + ' === \"undefined\" ? undefined : ' + name);"
+        + "}"
+        + "function fingerprint(value) {"
+        + "  if (value === null || typeof value !== 'object' && typeof value !== 'function') {"
+        + "    return {text: typeof value + ':' + String(value)};"
+        + "  }"
+        + "  var kind = Object.prototype.toString.call(value);"
+        + "  if (typeof value === 'object' && (kind === '[object Object]' || kind === '[object Array]')"
+        + "      && !(value instanceof Node)) {"
+        + "    try { return {text: 'json:' + JSON.stringify(value)}; } catch (e) {}"
+        + "  }"
+        + "  return {ref: value};"
+        + "}"
+        + "function unchanged(print, value) {"
+        + "  var now = fingerprint(value);"
+        + "  return 'ref' in print ? now.ref === print.ref : now.text === print.text;"
+        + "}"
+        // Browser-provided window properties are accessors (scrollY, document, ...); the page's own
+        // var, function and window.x = ... bindings are data properties.
+        + "function watched(snapshot) {"
+        + "  var own = snapshot.windowKeys.filter(function (name) {"
+        + "    var descriptor = Object.getOwnPropertyDescriptor(window, name);"
+        + "    return descriptor !== undefined && 'value' in descriptor;"
+        + "  });"
+        + "  return own.concat(snapshot.lexical).filter(function (name) {"
+        + "    return globals.indexOf(name) < 0 && name.indexOf('__lab') !== 0;"
+        + "  });"
+        + "}";
+
+    private static final String CAPTURE = COMMON
+        + "var snapshot = {url: arguments[2], lexical: arguments[3], roots: [], globals: {}, prints: {}};"
+        + "for (var i = 0; i < roots.length; i++) {"
+        + "  var element = document.querySelector(roots[i]);"
+        + "  if (!element) { return 'no element matches ' + roots[i]; }"
+        + "  snapshot.roots.push({element: element,"
+        + "    children: Array.prototype.map.call(element.childNodes, function (n) { return n.cloneNode(true); })});"
+        + "}"
+        + "for (var j = 0; j < globals.length; j++) {"
+        + "  var value;"
+        + "  try { value = read(globals[j]); } catch (e) { return 'cannot read ' + globals[j] + ': ' + e; }"
+        + "  if (value !== null && typeof value === 'object' || typeof value === 'function') {"
+        + "    return globals[j] + ' is not a primitive value';"
+        + "  }"
+        + "  snapshot.globals[globals[j]] = value;"
+        + "}"
+        + "snapshot.outside = outside();"
+        + "Object.defineProperty(window, '__labSnapshot', {value: snapshot, configurable: true});"
+        + "snapshot.windowKeys = Object.keys(window);"
+        + "var names = watched(snapshot);"
+        + "for (var k = 0; k < names.length; k++) {"
+        + "  try { snapshot.prints[names[k]] = fingerprint(read(names[k])); }"
+        + "  catch (e) { return 'cannot read ' + names[k] + ': ' + e; }"
+        + "}"
+        + "return null;";
+
+    private static final String RESTORE = COMMON
+        + "var snapshot = window.__labSnapshot;"
+        + "if (!snapshot) { return 'no snapshot in this document'; }"
+        + "if (snapshot.url !== arguments[2]) { return 'a different page is loaded'; }"
+        + "if (window.__labErrors && window.__labErrors.length) { return 'the page raised an error'; }"
+        + "var keys = Object.keys(window);"
+        + "for (var k = 0; k < keys.length; k++) {"
+        + "  if (snapshot.windowKeys.indexOf(keys[k]) < 0) { return 'window property ' + keys[k] + ' was added'; }"
+        + "}"
+        + "var names = watched(snapshot);"
+        + "for (var n = 0; n < names.length; n++) {"
+        + "  var same;"
+        + "  try { same = unchanged(snapshot.prints[names[n]], read(names[n])); } catch (e) { same = false; }"
+        + "  if (!same) { return 'global ' + names[n] + ' changed'; }"
+        + "}"
+        + "for (var i = 0; i < snapshot.roots.length; i++) {"
+        + "  var root = snapshot.roots[i];"
+        + "  if (!root.element.isConnected) { return roots[i] + ' was removed from the document'; }"
+        + "  root.element.replaceChildren.apply(root.element,"
+        + "    root.children.map(function (n) { return n.cloneNode(true); }));"
+        + "}"
+        + "if (outside() !== snapshot.outside) { return 'the page changed outside ' + roots.join(', '); }"
+        + "for (var name in snapshot.globals) {"
+        + "  var value = snapshot.globals[name];"
+        + "  try {"
+        + "    (0, eval)(name + ' = ' + (value === undefined ? 'undefined' : JSON.stringify(value)));"
+        + "  } catch (e) { return 'cannot restore ' + name + ': ' + e; }"
+        + "}"
+        + "if (document.activeElement && document.activeElement.blur) { document.activeElement.blur(); }"
+        + "window.scrollTo(0, 0);"
+        + "return null;";
+
+    private PageSnapshot() {
+    }
+
+    /**
+     * Records the state of the page just loaded from {@code url} in {@code driver}. Call after the
+     * load has finished and {@link DomWaiter#installErrorHook} has run, before any check touches the
+     * page.
+     */
+    public static void capture(WebDriver driver, String url) {
+        if (!ENABLED) {
+            return;
+        }
+        try (PhaseMetrics.Span span = PhaseMetrics.span("snapshot.capture")) {
+            List<?> lexical = lexicalNames(driver);
+            if (lexical == null) {
+                System.out.println("Page state not snapshotted, checks will reload it: "
+                    + "the driver cannot list top-level let/const/class bindings");
+                return;
+            }
+            Object problem = ((JavascriptExecutor) driver).executeScript(CAPTURE, ROOTS, GLOBALS, url, lexical);
+            if (problem != null) {
+                System.out.println("Page state not snapshotted, checks will reload it: " + problem);
+            }
+        } catch (WebDriverException e) {
+            System.out.println("Page state not snapshotted, checks will reload it: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Resets the page loaded in {@code driver} to the state {@link #capture} recorded for
+     * {@code url}.
+     *
+     * @return false if the page has to be reloaded instead
+     */
+    public static boolean restore(WebDriver driver, String url) {
+        if (!ENABLED) {
+            return false;
+        }
+        try (PhaseMetrics.Span span = PhaseMetrics.span("snapshot.restore")) {
+            Object problem = ((JavascriptExecutor) driver).executeScript(RESTORE, ROOTS, GLOBALS, url);
+            if (problem != null) {
+                System.out.println("Reloading page instead of restoring its snapshot: " + problem);
+                return false;
+            }
+            return true;
+        } catch (WebDriverException e) {
+            System.out.println("Reloading page instead of restoring its snapshot: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * The names of the page's top-level lexical bindings, or null when the driver cannot list them.
+     */
+    private static List<?> lexicalNames(WebDriver driver) {
+        if (!(driver instanceof HasCdp)) {
+            return null;
+        }
+        try {
+            Object names = ((HasCdp) driver).executeCdpCommand("Runtime.globalLexicalScopeNames", Map.of()).get("names");
+            return names instanceof List ? (List<?>) names : null;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static List<String> list(String value) {
+        return value.trim().isEmpty() ? List.of() : Arrays.asList(value.trim().split("\\s*,\\s*"));
+    }
+}
@@ -0,0 +1,185 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Timing spans around the phases of a grading run. Durations are aggregated per phase and written at
+ * JVM exit as a Prometheus text file and as JSON with p50/p95/p99, by default to target/metrics
+ * (override with -Dmetrics.dir).
+ */
+public final class PhaseMetrics {
+    private static final int MAX_SAMPLES_PER_PHASE = 10_000;
+    private static final double[] QUANTILES = {0.5, 0.95, 0.99};
+    private static final Map<String, Histogram> HISTOGRAMS = new ConcurrentHashMap<>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(PhaseMetrics::export, "phase-metrics-export"));
+    }
+
+    private PhaseMetrics() {
+    }
+
+    public interface TimedCall<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    public interface TimedRun<E extends Exception> {
+        void run() throws E;
+    }
+
+    public static Span span(String phase) {
+        return new Span(phase);
+    }
+
+    public static <T, E extends Exception> T time(String phase, TimedCall<T, E> call) throws E {
+        try (Span span = span(phase)) {
+            return call.call();
+        }
+    }
+
+    public static <E extends Exception> void time(String phase, TimedRun<E> run) throws E {
+        try (Span span = span(phase)) {
+            run.run();
+        }
+    }
+
+    public static void record(String phase, long nanos) {
+        HISTOGRAMS.computeIfAbsent(phase, name -> new Histogram()).add(nanos);
+    }
+
+    static synchronized void export() {
+        if (HISTOGRAMS.isEmpty()) {
+            return;
+        }
+        Path directory = Paths.get(System.getProperty("metrics.dir", "target/metrics"));
+        Map<String, Histogram> snapshot = new TreeMap<>(HISTOGRAMS);
+        try {
+            Files.createDirectories(directory);
+            write(directory.resolve("grading-metrics.prom"), prometheus(snapshot));
+            write(directory.resolve("grading-metrics.json"), json(snapshot));
+        } catch (IOException e) {
+            System.err.println("Could not export phase metrics: " + e.getMessage());
+        }
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        Files.write(temp, content.getBytes(StandardCharsets.UTF_8));
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String prometheus(Map<String, Histogram> histograms) {
+        StringBuilder out = new StringBuilder();
+        out.append("# HELP lab_harness_phase_seconds Time spent in each phase of a grading run.\n");
+        out.append("# TYPE lab_harness_phase_seconds summary\n");
+        for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+            Histogram.Snapshot snapshot = entry.getValue().snapshot();
+            String phase = entry.getKey().replace("\\", "\\\\").replace("\"", "\\\"");
+            for (double quantile : QUANTILES) {
+                out.append(String.format(Locale.ROOT, "lab_harness_phase_seconds{phase=\"%s\",quantile=\"%s\"} %.6f%n",
+                    phase, quantile, snapshot.quantile(quantile) / 1e9));
+            }
+            out.append(String.format(Locale.ROOT, "lab_harness_phase_seconds_sum{phase=\"%s\"} %.6f%n",
+                phase, snapshot.sumNanos / 1e9));
+            out.append(String.format(Locale.ROOT, "lab_harness_phase_seconds_count{phase=\"%s\"} %d%n",
+                phase, snapshot.count));
+        }
+        return out.toString();
+    }
+
+    private static String json(Map<String, Histogram> histograms) {
+        StringBuilder out = new StringBuilder("{\n  \"phases\": {");
+        boolean first = true;
+        for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+            Histogram.Snapshot snapshot = entry.getValue().snapshot();
+            out.append(first ? "\n" : ",\n");
+            first = false;
+            out.append(String.format(Locale.ROOT,
+                "    \"%s\": {\"count\": %d, \"sumMs\": %.3f, \"p50Ms\": %.3f, \"p95Ms\": %.3f, \"p99Ms\": %.3f, \"maxMs\": %.3f}",
+                entry.getKey().replace("\\", "\\\\").replace("\"", "\\\""),
+                snapshot.count, snapshot.sumNanos / 1e6, snapshot.quantile(0.5) / 1e6,
+                snapshot.quantile(0.95) / 1e6, snapshot.quantile(0.99) / 1e6, snapshot.maxNanos / 1e6));
+        }
+        return out.append("\n  }\n}\n").toString();
+    }
+
+    public static final class Span implements AutoCloseable {
+        private final String phase;
+        private final long start = System.nanoTime();
+        private boolean closed;
+
+        private Span(String phase) {
+            this.phase = phase;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                record(phase, System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Exact count, sum and max; quantiles from a uniform reservoir of at most
+     * {@value #MAX_SAMPLES_PER_PHASE} samples so memory stays bounded on long-running graders.
+     */
+    private static final class Histogram {
+        private final long[] reservoir = new long[MAX_SAMPLES_PER_PHASE];
+        private long count;
+        private long sumNanos;
+        private long maxNanos;
+
+        synchronized void add(long nanos) {
+            if (count < reservoir.length) {
+                reservoir[(int) count] = nanos;
+            } else {
+                long slot = ThreadLocalRandom.current().nextLong(count + 1);
+                if (slot < reservoir.length) {
+                    reservoir[(int) slot] = nanos;
+                }
+            }
+            count++;
+            sumNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+        }
+
+        synchronized Snapshot snapshot() {
+            long[] samples = Arrays.copyOf(reservoir, (int) Math.min(count, reservoir.length));
+            Arrays.sort(samples);
+            return new Snapshot(samples, count, sumNanos, maxNanos);
+        }
+
+        static final class Snapshot {
+            final long[] sorted;
+            final long count;
+            final long sumNanos;
+            final long maxNanos;
+
+            Snapshot(long[] sorted, long count, long sumNanos, long maxNanos) {
+                this.sorted = sorted;
+                this.count = count;
+                this.sumNanos = sumNanos;
+                this.maxNanos = maxNanos;
+            }
+
+            double quantile(double quantile) {
+                if (sorted.length == 0) {
+                    return 0;
+                }
+                int index = (int) Math.ceil(quantile * sorted.length) - 1;
+                return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+            }
+        }
+    }
+}
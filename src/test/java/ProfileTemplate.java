@@ -0,0 +1,194 @@
+import java.io.IOException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * A browser profile that has already been through first-run initialization, built once per browser
+ * version under ~/.cache/selenium-lab/profiles and cloned into a fresh directory for every session.
+ * On Linux the clone is a {@code cp --reflink=auto} copy, which is copy-on-write on filesystems that
+ * support it. Disable with -Dbrowser.profile.template=false.
+ */
+public final class ProfileTemplate {
+    private static final Map<String, ProfileTemplate> TEMPLATES = new ConcurrentHashMap<>();
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("browser.profile.template", "true"));
+    private static final boolean IS_LINUX = System.getProperty("os.name").toLowerCase().contains("linux");
+    private static final long LOCK_RELEASE_TIMEOUT_MILLIS = 10_000;
+
+    /** Per-process lock files and caches that must not be carried over into a clone. */
+    private static final Set<String> SKIPPED = Set.of(
+        "SingletonLock", "SingletonSocket", "SingletonCookie", "lockfile",
+        "Crashpad", "BrowserMetrics", "Cache", "Code Cache", "GPUCache",
+        "ShaderCache", "GrShaderCache", "GraphiteDawnCache", "DawnCache"
+    );
+
+    private final Path directory;
+    private final Function<Path, WebDriver> launcher;
+    private volatile boolean built;
+
+    private ProfileTemplate(Path directory, Function<Path, WebDriver> launcher) {
+        this.directory = directory;
+        this.launcher = launcher;
+    }
+
+    /**
+     * @param launcher starts a session using the given profile directory; used once to build the template
+     */
+    public static ProfileTemplate forBrowser(BrowserConfig config, Function<Path, WebDriver> launcher) {
+        String key = (config.browserType + "-" + (config.browserVersion == null ? "unknown" : config.browserVersion))
+            .replaceAll("[^A-Za-z0-9._-]", "_");
+        return TEMPLATES.computeIfAbsent(key, name -> new ProfileTemplate(
+            Paths.get(System.getProperty("user.home"), ".cache", "selenium-lab", "profiles", name), launcher));
+    }
+
+    /**
+     * Returns a new, uniquely named profile directory for one session. The directory is a clone of the
+     * template, or empty if the template is disabled or could not be built.
+     */
+    public Path newProfile() throws IOException {
+        Path profile = BrowserReaper.newProfileDirectory();
+        if (!ENABLED) {
+            return profile;
+        }
+        try (PhaseMetrics.Span span = PhaseMetrics.span("driver.profile_clone")) {
+            ensureBuilt();
+            copy(directory, profile);
+        } catch (Exception e) {
+            System.out.println("Profile template unavailable, starting with an empty profile: " + e.getMessage());
+        }
+        return profile;
+    }
+
+    private synchronized void ensureBuilt() throws IOException {
+        if (built) {
+            return;
+        }
+        try {
+            if (!Files.isDirectory(directory)) {
+                build();
+            }
+        } finally {
+            // A failed build is not retried for every session; they start with empty profiles instead.
+            built = true;
+        }
+    }
+
+    private void build() throws IOException {
+        System.out.println("Building browser profile template in " + directory);
+        Files.createDirectories(directory.getParent());
+        Path staging = Files.createTempDirectory(directory.getParent(), directory.getFileName() + ".staging-");
+        try (PhaseMetrics.Span span = PhaseMetrics.span("driver.profile_template_build")) {
+            WebDriver driver = launcher.apply(staging);
+            try {
+                driver.get("about:blank");
+            } finally {
+                driver.quit();
+            }
+            awaitLockRelease(staging);
+            prune(staging);
+            try {
+                Files.move(staging, directory, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException | DirectoryNotEmptyException e) {
+                // Another JVM finished building the same template first.
+                BrowserReaper.reap(staging);
+            }
+        } catch (RuntimeException | IOException e) {
+            BrowserReaper.reap(staging);
+            throw e;
+        }
+    }
+
+    /**
+     * The browser deletes its SingletonLock only after it has flushed the profile to disk.
+     */
+    private static void awaitLockRelease(Path profile) {
+        Path lock = profile.resolve("SingletonLock");
+        long deadline = System.currentTimeMillis() + LOCK_RELEASE_TIMEOUT_MILLIS;
+        while (Files.exists(lock, LinkOption.NOFOLLOW_LINKS) && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static void prune(Path profile) throws IOException {
+        Files.walkFileTree(profile, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+                if (!dir.equals(profile) && SKIPPED.contains(dir.getFileName().toString())) {
+                    BrowserReaper.deleteRecursively(dir);
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                if (SKIPPED.contains(file.getFileName().toString())) {
+                    Files.deleteIfExists(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static void copy(Path source, Path target) throws IOException {
+        if (IS_LINUX && reflinkCopy(source, target)) {
+            return;
+        }
+        Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) throws IOException {
+                if (!dir.equals(source) && SKIPPED.contains(dir.getFileName().toString())) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                Files.createDirectories(target.resolve(source.relativize(dir).toString()));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                if (!SKIPPED.contains(file.getFileName().toString()) && !attributes.isSymbolicLink()) {
+                    Files.copy(file, target.resolve(source.relativize(file).toString()),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Templates are pruned of the skipped entries when built, so a whole-tree copy is safe here. Hardlinks
+     * would be cheaper still, but the browser rewrites some profile files (SQLite databases) in place
+     * and would corrupt the template through them.
+     */
+    private static boolean reflinkCopy(Path source, Path target) {
+        try {
+            Process process = new ProcessBuilder("cp", "-a", "--reflink=auto", source + "/.", target.toString())
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+            return process.waitFor() == 0;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
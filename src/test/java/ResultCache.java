@@ -0,0 +1,294 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Remembers check outcomes across runs so an unchanged submission is not graded again. An entry is
+ * keyed by a SHA-256 over the submission's {@code Lab.js} and {@code index.html}, every class and
+ * resource of the test code (the test-classes directory, or the jar it was loaded from), the grading
+ * engine, the browser and driver versions, the browser backend and the launch profile, so changing
+ * any of them is a miss. Only passes and assertion failures are stored; harness errors and checks
+ * that failed by running into a timeout are always re-run, since a slow node is not a verdict.
+ *
+ * <p>Entries are properties files under ~/.cache/selenium-lab/results (-Dresult.cache.dir). Entries
+ * older than -Dresult.cache.maxAgeHours (default 168) are dropped, and beyond
+ * -Dresult.cache.maxEntries (default 10000) the oldest are evicted. Disable with -Dresult.cache=false.
+ */
+public final class ResultCache {
+    private static final int CACHE_FORMAT = 2;
+    private static final int PRUNE_EVERY_STORES = 100;
+
+    private static ResultCache shared;
+
+    private final Path directory;
+    private final boolean enabled;
+    private final int maxEntries;
+    private final Duration maxAge;
+    private final AtomicInteger storesSincePrune = new AtomicInteger();
+    private String environmentFingerprint;
+
+    ResultCache(Path directory, boolean enabled, int maxEntries, Duration maxAge) {
+        this(directory, enabled, maxEntries, maxAge, null);
+    }
+
+    /**
+     * @param environmentFingerprint stands in for the fingerprint of the test code, engine and
+     *                               browser; null to compute it on first use
+     */
+    ResultCache(Path directory, boolean enabled, int maxEntries, Duration maxAge, String environmentFingerprint) {
+        this.directory = directory;
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.maxAge = maxAge;
+        this.environmentFingerprint = environmentFingerprint;
+    }
+
+    public static synchronized ResultCache shared() {
+        if (shared == null) {
+            String configured = System.getProperty("result.cache.dir");
+            Path directory = configured != null
+                ? Paths.get(configured)
+                : Paths.get(System.getProperty("user.home"), ".cache", "selenium-lab", "results");
+            shared = new ResultCache(directory,
+                Boolean.parseBoolean(System.getProperty("result.cache", "true")),
+                Integer.getInteger("result.cache.maxEntries", 10_000),
+                Duration.ofHours(Long.getLong("result.cache.maxAgeHours", 168L)));
+            shared.prune();
+        }
+        return shared;
+    }
+
+    /**
+     * The key for running {@code checkName} against the page made of {@code labJs} and {@code indexHtml},
+     * or {@code null} when the cache is disabled or the test code cannot be fingerprinted.
+     */
+    public String key(String checkName, File labJs, File indexHtml) {
+        if (!enabled) {
+            return null;
+        }
+        String environment = environmentFingerprint();
+        if (environment.isEmpty()) {
+            return null;
+        }
+        MessageDigest digest = sha256();
+        update(digest, "format " + CACHE_FORMAT);
+        update(digest, environment);
+        update(digest, checkName);
+        updateWithFile(digest, labJs);
+        updateWithFile(digest, indexHtml);
+        return hex(digest.digest());
+    }
+
+    /**
+     * Returns the stored outcome for {@code key}, or {@code null} when there is none or it has expired.
+     */
+    public BatchGrader.CheckResult lookup(String key) {
+        if (!enabled || key == null) {
+            return null;
+        }
+        Path file = entryFile(key);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        } catch (IOException e) {
+            System.out.println("Ignoring unreadable result cache entry: " + e.getMessage());
+            return null;
+        }
+
+        try {
+            long storedAt = Long.parseLong(properties.getProperty("storedAt"));
+            if (System.currentTimeMillis() - storedAt > maxAge.toMillis()) {
+                Files.deleteIfExists(file);
+                return null;
+            }
+            return new BatchGrader.CheckResult(
+                properties.getProperty("check"),
+                BatchGrader.CheckResult.Outcome.valueOf(properties.getProperty("outcome")),
+                properties.getProperty("message"),
+                Long.parseLong(properties.getProperty("durationMillis")));
+        } catch (RuntimeException | IOException e) {
+            System.out.println("Ignoring malformed result cache entry " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    public void store(String key, BatchGrader.CheckResult result) {
+        if (!enabled || key == null || result.isError() || result.timedOut) {
+            return;
+        }
+        Properties properties = new Properties();
+        properties.setProperty("check", result.checkName);
+        properties.setProperty("outcome", result.outcome.name());
+        properties.setProperty("durationMillis", String.valueOf(result.durationMillis));
+        properties.setProperty("storedAt", String.valueOf(System.currentTimeMillis()));
+        if (result.message != null) {
+            properties.setProperty("message", result.message);
+        }
+
+        try {
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, "result", ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                properties.store(out, "Lab check result cache");
+            }
+            Files.move(temp, entryFile(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.out.println("Could not write result cache entry: " + e.getMessage());
+            return;
+        }
+        if (storesSincePrune.incrementAndGet() >= PRUNE_EVERY_STORES) {
+            storesSincePrune.set(0);
+            prune();
+        }
+    }
+
+    /**
+     * Deletes expired entries, then the oldest entries beyond the size limit.
+     */
+    synchronized void prune() {
+        if (!enabled || !Files.isDirectory(directory)) {
+            return;
+        }
+        List<Path> entries = new ArrayList<>();
+        long expiredBefore = System.currentTimeMillis() - maxAge.toMillis();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.properties")) {
+            for (Path entry : stream) {
+                if (lastModified(entry) < expiredBefore) {
+                    Files.deleteIfExists(entry);
+                } else {
+                    entries.add(entry);
+                }
+            }
+            if (entries.size() > maxEntries) {
+                entries.sort(Comparator.comparingLong(ResultCache::lastModified));
+                for (Path entry : entries.subList(0, entries.size() - maxEntries)) {
+                    Files.deleteIfExists(entry);
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Could not prune result cache: " + e.getMessage());
+        }
+    }
+
+    private Path entryFile(String key) {
+        return directory.resolve(key + ".properties");
+    }
+
+    /**
+     * Test code, engine and browser do not change within a JVM, so they are hashed once. Empty when the
+     * test code cannot be read, which disables the cache rather than risk serving stale outcomes.
+     */
+    private synchronized String environmentFingerprint() {
+        if (environmentFingerprint == null) {
+            MessageDigest digest = sha256();
+            try {
+                updateWithTestCode(digest, codeLocation());
+                update(digest, "engine " + System.getProperty("lab.engine", "browser"));
+                update(digest, browser());
+                environmentFingerprint = hex(digest.digest());
+            } catch (IOException | RuntimeException e) {
+                System.out.println("Result cache disabled, cannot fingerprint the test code: " + e.getMessage());
+                environmentFingerprint = "";
+            }
+        }
+        return environmentFingerprint;
+    }
+
+    private static Path codeLocation() {
+        try {
+            return Paths.get(ResultCache.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (Exception e) {
+            throw new IllegalStateException("unknown location of " + ResultCache.class, e);
+        }
+    }
+
+    /**
+     * Hashes every file under {@code root} in a fixed order, or {@code root} itself when it is a jar.
+     */
+    static void updateWithTestCode(MessageDigest digest, Path root) throws IOException {
+        if (!Files.isDirectory(root)) {
+            update(digest, root.getFileName().toString());
+            digest.update(Files.readAllBytes(root));
+            return;
+        }
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> walk = Files.walk(root)) {
+            walk.filter(Files::isRegularFile).forEach(files::add);
+        }
+        files.sort(Comparator.comparing(file -> root.relativize(file).toString()));
+        for (Path file : files) {
+            update(digest, root.relativize(file).toString().replace(File.separatorChar, '/'));
+            digest.update(Files.readAllBytes(file));
+        }
+    }
+
+    private static String browser() {
+        BrowserConfig config;
+        try {
+            config = BrowserDiscovery.discover();
+        } catch (RuntimeException e) {
+            // JS-engine-only hosts may have no browser at all.
+            return "no browser";
+        }
+        return config.browserType + " " + config.browserVersion + " driver " + config.driverVersion
+            + " backend " + BrowserBackend.forConfig(config).name() + " launch " + LaunchProfile.selected();
+    }
+
+    private static void updateWithFile(MessageDigest digest, File file) {
+        update(digest, file.getName());
+        try {
+            digest.update(Files.readAllBytes(file.toPath()));
+        } catch (IOException e) {
+            update(digest, "missing");
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String hex(byte[] bytes) {
+        StringBuilder out = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            out.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,165 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Properties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Exercises the result cache against a temporary directory with a fixed environment fingerprint, so
+ * no browser is discovered.
+ */
+public class ResultCacheTest {
+    private static final Duration MAX_AGE = Duration.ofHours(1);
+
+    @TempDir
+    Path root;
+
+    private Path entries;
+    private File labJs;
+    private File indexHtml;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        entries = root.resolve("results");
+        Path submission = Files.createDirectories(root.resolve("submission"));
+        labJs = write(submission.resolve("Lab.js"), "// lab").toFile();
+        indexHtml = write(submission.resolve("index.html"), "<html></html>").toFile();
+    }
+
+    @Test
+    public void keyCoversCheckSubmissionAndEnvironment() throws IOException {
+        ResultCache cache = cache(10, "environment");
+        String key = cache.key("check", labJs, indexHtml);
+
+        assertTrue(key.matches("[0-9a-f]{64}"), key);
+        assertEquals(key, cache.key("check", labJs, indexHtml));
+        assertEquals(key, cache(10, "environment").key("check", labJs, indexHtml));
+        assertNotEquals(key, cache.key("other check", labJs, indexHtml));
+        assertNotEquals(key, cache(10, "other environment").key("check", labJs, indexHtml));
+
+        write(labJs.toPath(), "// lab, edited");
+        assertNotEquals(key, cache.key("check", labJs, indexHtml));
+    }
+
+    @Test
+    public void hasNoKeyWhenDisabledOrTheEnvironmentIsUnknown() {
+        assertNull(new ResultCache(entries, false, 10, MAX_AGE, "environment").key("check", labJs, indexHtml));
+        assertNull(cache(10, "").key("check", labJs, indexHtml));
+    }
+
+    @Test
+    public void storesPassesAndAssertionFailures() {
+        ResultCache cache = cache(10, "environment");
+        cache.store("passed", result(BatchGrader.CheckResult.Outcome.PASSED, null, false));
+        cache.store("failed", result(BatchGrader.CheckResult.Outcome.FAILED, "expected 3 bulbs", false));
+
+        BatchGrader.CheckResult passed = cache.lookup("passed");
+        assertEquals(BatchGrader.CheckResult.Outcome.PASSED, passed.outcome);
+        assertEquals("check", passed.checkName);
+        assertEquals(42L, passed.durationMillis);
+        assertNull(passed.message);
+
+        BatchGrader.CheckResult failed = cache.lookup("failed");
+        assertEquals(BatchGrader.CheckResult.Outcome.FAILED, failed.outcome);
+        assertEquals("expected 3 bulbs", failed.message);
+        assertNull(cache.lookup("missing"));
+        assertNull(cache.lookup(null));
+    }
+
+    @Test
+    public void neverStoresErrorsOrTimeouts() {
+        ResultCache cache = cache(10, "environment");
+        cache.store("error", result(BatchGrader.CheckResult.Outcome.ERROR, "driver died", false));
+        cache.store("timeout", result(BatchGrader.CheckResult.Outcome.FAILED, "wait timed out", true));
+
+        assertNull(cache.lookup("error"));
+        assertNull(cache.lookup("timeout"));
+        assertFalse(Files.exists(entries.resolve("error.properties")));
+        assertFalse(Files.exists(entries.resolve("timeout.properties")));
+    }
+
+    @Test
+    public void expiredEntriesAreMisses() throws IOException {
+        ResultCache cache = cache(10, "environment");
+        cache.store("old", result(BatchGrader.CheckResult.Outcome.PASSED, null, false));
+        Path file = entries.resolve("old.properties");
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        }
+        properties.setProperty("storedAt", String.valueOf(System.currentTimeMillis() - 2 * MAX_AGE.toMillis()));
+        try (OutputStream out = Files.newOutputStream(file)) {
+            properties.store(out, null);
+        }
+
+        assertNull(cache.lookup("old"));
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    public void pruneDropsExpiredThenOldestEntries() throws IOException {
+        ResultCache cache = cache(2, "environment");
+        long now = System.currentTimeMillis();
+        String[] keys = {"expired", "oldest", "older", "newest"};
+        long[] ages = {2 * MAX_AGE.toMillis(), 30_000, 20_000, 10_000};
+        for (int i = 0; i < keys.length; i++) {
+            cache.store(keys[i], result(BatchGrader.CheckResult.Outcome.PASSED, null, false));
+            Files.setLastModifiedTime(entries.resolve(keys[i] + ".properties"), FileTime.fromMillis(now - ages[i]));
+        }
+
+        cache.prune();
+
+        assertFalse(Files.exists(entries.resolve("expired.properties")));
+        assertFalse(Files.exists(entries.resolve("oldest.properties")));
+        assertTrue(Files.exists(entries.resolve("older.properties")));
+        assertTrue(Files.exists(entries.resolve("newest.properties")));
+    }
+
+    @Test
+    public void testCodeFingerprintCoversNamesAndContents() throws IOException {
+        Path classes = Files.createDirectories(root.resolve("classes"));
+        write(classes.resolve("A.class"), "a");
+        write(Files.createDirectories(classes.resolve("META-INF")).resolve("b.txt"), "b");
+        String original = testCodeFingerprint(classes);
+
+        assertEquals(original, testCodeFingerprint(classes));
+        write(classes.resolve("A.class"), "changed");
+        assertNotEquals(original, testCodeFingerprint(classes));
+        write(classes.resolve("A.class"), "a");
+        assertEquals(original, testCodeFingerprint(classes));
+        Files.move(classes.resolve("A.class"), classes.resolve("C.class"));
+        assertNotEquals(original, testCodeFingerprint(classes));
+    }
+
+    private ResultCache cache(int maxEntries, String environment) {
+        return new ResultCache(entries, true, maxEntries, MAX_AGE, environment);
+    }
+
+    private static BatchGrader.CheckResult result(BatchGrader.CheckResult.Outcome outcome, String message, boolean timedOut) {
+        return new BatchGrader.CheckResult("check", outcome, message, 42, timedOut);
+    }
+
+    private static String testCodeFingerprint(Path root) throws IOException {
+        MessageDigest digest = ResultCache.sha256();
+        ResultCache.updateWithTestCode(digest, root);
+        return ResultCache.hex(digest.digest());
+    }
+
+    private static Path write(Path file, String content) throws IOException {
+        return Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,224 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.openqa.selenium.Capabilities;
+import org.openqa.selenium.HasCapabilities;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.json.Json;
+
+/**
+ * Streams one JSON line per completed check to target/results/lab-results.jsonl (override with
+ * -Dresults.file, disable with -Dresults.file=), so a pipeline can tail results while a batch is
+ * still running instead of parsing surefire XML afterwards.
+ *
+ * <p>Lines carry the submission id, check name, outcome, duration, message, whether the result came
+ * from {@link ResultCache}, the engine that ran the check (browser name and version, or the JS
+ * engine), and for failed browser checks the length and SHA-256 of the page source the check left
+ * behind; passing checks do not pay for serializing the page. They are appended through a
+ * fixed-size buffer (-Dresults.bufferKb, default 64) that is written out when full, at most
+ * -Dresults.flushMillis (default 250) after the first buffered line, and at JVM exit. Every write
+ * ends on a line boundary and is made under an exclusive lock on the file, so a reader never sees
+ * half a line and concurrent forks can append to the same file without interleaving.
+ */
+public final class ResultReporter {
+    static final String JS_ENGINE = "js-engine";
+    private static final Json JSON = new Json();
+    private static ResultReporter shared;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final ScheduledExecutorService flusher;
+    private final long flushMillis;
+    private boolean flushScheduled;
+    private boolean closed;
+
+    private ResultReporter(Path file, int bufferBytes, long flushMillis) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.APPEND);
+        this.buffer = ByteBuffer.allocateDirect(bufferBytes);
+        this.flushMillis = flushMillis;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "result-reporter-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * The reporter configured by system properties, or null when reporting is disabled or the file
+     * cannot be opened.
+     */
+    public static synchronized ResultReporter shared() {
+        if (shared == null) {
+            String file = System.getProperty("results.file", "target/results/lab-results.jsonl");
+            if (file.trim().isEmpty()) {
+                return null;
+            }
+            try {
+                shared = new ResultReporter(Paths.get(file), Integer.getInteger("results.bufferKb", 64) * 1024,
+                    Long.getLong("results.flushMillis", 250));
+            } catch (IOException e) {
+                System.err.println("Result reporting disabled, cannot open " + file + ": " + e.getMessage());
+                return null;
+            }
+            ResultReporter reporter = shared;
+            Runtime.getRuntime().addShutdownHook(new Thread(reporter::close, "result-reporter-close"));
+        }
+        return shared;
+    }
+
+    /**
+     * Reports a check graded in a browser. For a check that did not pass, pass the page source
+     * {@link FailureDiagnostics#capture} already read; if that is null the source is read from
+     * {@code driver} now, so call before the page is navigated away from or reset.
+     */
+    public static void report(String submissionId, BatchGrader.CheckResult result, WebDriver driver, String pageSource) {
+        ResultReporter reporter = shared();
+        if (reporter == null) {
+            return;
+        }
+        String engine = null;
+        if (driver != null) {
+            engine = engine(driver);
+        }
+        if (result.isPassed()) {
+            pageSource = null;
+        } else if (driver != null && pageSource == null) {
+            try {
+                pageSource = driver.getPageSource();
+            } catch (WebDriverException e) {
+                // The session is gone; report the result without a page fingerprint.
+            }
+        }
+        reporter.write(submissionId, result, engine, pageSource, false);
+    }
+
+    /**
+     * Reports a check that ran without a browser page, in the JS engine or from the result cache.
+     */
+    public static void report(String submissionId, BatchGrader.CheckResult result, String engine, boolean cached) {
+        ResultReporter reporter = shared();
+        if (reporter != null) {
+            reporter.write(submissionId, result, engine, null, cached);
+        }
+    }
+
+    private void write(String submissionId, BatchGrader.CheckResult result, String engine, String pageSource,
+                       boolean cached) {
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("timestamp", Instant.now().toString());
+        line.put("submission", submissionId);
+        line.put("check", result.checkName);
+        line.put("outcome", result.outcome.name());
+        line.put("durationMillis", result.durationMillis);
+        line.put("cached", cached);
+        if (engine != null) {
+            line.put("engine", engine);
+        }
+        if (pageSource != null) {
+            line.put("pageSourceLength", pageSource.length());
+            line.put("pageSourceSha256", ResultCache.hex(ResultCache.sha256().digest(
+                pageSource.getBytes(StandardCharsets.UTF_8))));
+        }
+        if (result.message != null) {
+            line.put("message", result.message);
+        }
+        StringBuilder json = new StringBuilder();
+        JSON.newOutput(json).setPrettyPrint(false).write(line).close();
+        append((json + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private synchronized void append(byte[] line) {
+        if (closed) {
+            return;
+        }
+        try {
+            if (line.length > buffer.remaining()) {
+                drain();
+            }
+            if (line.length > buffer.capacity()) {
+                writeFully(ByteBuffer.wrap(line));
+                return;
+            }
+            buffer.put(line);
+            if (!flushScheduled) {
+                flushScheduled = true;
+                flusher.schedule(this::flush, flushMillis, TimeUnit.MILLISECONDS);
+            }
+        } catch (IOException e) {
+            System.err.println("Could not write result line: " + e.getMessage());
+        }
+    }
+
+    public synchronized void flush() {
+        flushScheduled = false;
+        if (closed) {
+            return;
+        }
+        try {
+            drain();
+        } catch (IOException e) {
+            System.err.println("Could not flush results: " + e.getMessage());
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        try {
+            writeFully(buffer);
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Appends {@code bytes} while holding the file lock, since a single write() may be split and
+     * another fork's lines could otherwise land in between.
+     */
+    private void writeFully(ByteBuffer bytes) throws IOException {
+        if (!bytes.hasRemaining()) {
+            return;
+        }
+        try (FileLock lock = channel.lock()) {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        }
+    }
+
+    synchronized void close() {
+        flush();
+        closed = true;
+        flusher.shutdownNow();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Could not close results file: " + e.getMessage());
+        }
+    }
+
+    static String engine(WebDriver driver) {
+        if (driver instanceof HasCapabilities) {
+            Capabilities capabilities = ((HasCapabilities) driver).getCapabilities();
+            return capabilities.getBrowserName() + " " + capabilities.getBrowserVersion();
+        }
+        return "browser";
+    }
+}
@@ -1,33 +1,29 @@
-import org.junit.After;
-import org.junit.Before;
-import org.junit.Test;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
 import java.io.File;
+import java.io.IOException;
 import java.time.Duration;
+import java.nio.file.Path;
 import java.util.Arrays;
-import java.util.logging.Level;
+import java.util.function.Function;
 import java.util.logging.Logger;
 import org.openqa.selenium.By;
+import org.openqa.selenium.TimeoutException;
 import org.openqa.selenium.WebDriver;
-import org.openqa.selenium.WebElement;
-import org.openqa.selenium.chrome.ChromeDriver;
-import org.openqa.selenium.chrome.ChromeOptions;
-import org.openqa.selenium.chrome.ChromeDriverService;
-import org.openqa.selenium.edge.EdgeDriver;
-import org.openqa.selenium.edge.EdgeOptions;
-import org.openqa.selenium.edge.EdgeDriverService;
 import org.openqa.selenium.support.ui.WebDriverWait;
 import org.openqa.selenium.support.ui.ExpectedConditions;
-import org.openqa.selenium.logging.LogType;
-import org.openqa.selenium.logging.LoggingPreferences;
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertTrue;
-import static org.junit.Assert.assertFalse;
 
+@ExtendWith({WorkerDriverExtension.class, FailureDiagnostics.class})
 public class SeleniumTest {
+    private WorkerDriverExtension.WorkerDriver workerDriver;
     private WebDriver webDriver;
     private WebDriverWait wait;
+    private LabPage labPage;
+    private BrowserConsole console;
+    private File htmlFile;
     private static final Logger logger = Logger.getLogger(SeleniumTest.class.getName());
-    private Process httpServerProcess;
     private String browserType;
     
     private static final String OS_NAME = System.getProperty("os.name").toLowerCase();
@@ -36,219 +32,176 @@ public class SeleniumTest {
     private static final boolean IS_WINDOWS = OS_NAME.contains("windows");
     private static final boolean IS_LINUX = OS_NAME.contains("linux");
     private static final boolean IS_MAC = OS_NAME.contains("mac");
+    
+    private static final boolean USE_JS_ENGINE = "js".equalsIgnoreCase(System.getProperty("lab.engine", "browser"));
+    private static final String SUBMISSION_ID =
+        System.getProperty("results.submission", new File(System.getProperty("user.dir")).getName());
+    
+    private static WebDriverPool driverPool;
   
-    @Before
-    public void setUp() {
+    @BeforeEach
+    public void setUp(WorkerDriverExtension.WorkerDriver workerDriver) {
+        this.workerDriver = workerDriver;
+        PhaseMetrics.time("setup.environment", this::printEnvironmentInfo);
+        htmlFile = PhaseMetrics.time("setup.html_lookup", SeleniumTest::findHtmlFile);
+    }
+    
+    /**
+     * Loads the page for a check that has no cached result, so a cache hit launches nothing.
+     */
+    private void loadPage() {
+        if (USE_JS_ENGINE) {
+            try {
+                System.out.println("\n=== LOADING PAGE IN JS ENGINE ===");
+                labPage = PhaseMetrics.time("setup.js_engine_load", () -> JsEngineLabPage.load(htmlFile));
+                System.out.println("Page loaded in embedded JS engine");
+                return;
+            } catch (UnsupportedDomFeatureException e) {
+                System.out.println("JS engine cannot run this lab, falling back to browser: " + e.getMessage());
+            } catch (Exception e) {
+                System.out.println("JS engine failed to load the page, falling back to browser: " + e.getMessage());
+            }
+        }
+        
+        setUpBrowser();
+    }
+    
+    private void setUpBrowser() {
         try {
-            printEnvironmentInfo();
-            
-            BrowserConfig browserConfig = detectBrowserAndDriver();
+            BrowserConfig browserConfig = PhaseMetrics.time("setup.discovery", BrowserDiscovery::discover);
             this.browserType = browserConfig.browserType;
             
-            File htmlFile = findHtmlFile();
-            String htmlUrl = determineHtmlUrl(htmlFile);
+            String htmlUrl = PhaseMetrics.time("setup.server_start", () -> determineHtmlUrl(htmlFile));
             
-            webDriver = createWebDriver(browserConfig);
+            webDriver = PhaseMetrics.time("setup.driver_lease", workerDriver::get);
             
-            wait = new WebDriverWait(webDriver, Duration.ofSeconds(30));
+            wait = new WebDriverWait(webDriver, TimeoutScheduler.timeout("page.load", Duration.ofSeconds(30)));
             
-            webDriver.manage().timeouts().pageLoadTimeout(Duration.ofSeconds(60));
-            webDriver.manage().timeouts().implicitlyWait(Duration.ofSeconds(10));
+            webDriver.manage().timeouts().pageLoadTimeout(TimeoutScheduler.timeout("page.load", Duration.ofSeconds(60)));
+            webDriver.manage().timeouts().implicitlyWait(Duration.ZERO);
+            console = BrowserConsole.attach(webDriver);
+            htmlUrl = PageInjector.urlFor(webDriver, htmlUrl);
             
             System.out.println("\n=== NAVIGATING TO PAGE ===");
             System.out.println("Navigating to: " + htmlUrl);
-            webDriver.get(htmlUrl);
-            
-            wait.until(ExpectedConditions.presenceOfElementLocated(By.tagName("body")));
+            try (PhaseMetrics.Span span = PhaseMetrics.span("setup.navigation")) {
+                long start = System.nanoTime();
+                try {
+                    webDriver.get(htmlUrl);
+                    wait.until(ExpectedConditions.presenceOfElementLocated(By.tagName("body")));
+                } catch (TimeoutException e) {
+                    TimeoutScheduler.timedOut("page.load", System.nanoTime() - start);
+                    throw e;
+                }
+                TimeoutScheduler.observe("page.load", System.nanoTime() - start);
+            }
+            DomWaiter.installErrorHook(webDriver);
+            labPage = new BrowserLabPage(webDriver, console);
             System.out.println("Page loaded successfully");
             
-            printPageInfo();
+            PhaseMetrics.time("setup.page_info", this::printPageInfo);
             
         } catch (Exception e) {
             System.err.println("\n=== SETUP FAILED ===");
             System.err.println("Error: " + e.getMessage());
             e.printStackTrace();
             
+            if (webDriver != null) {
+                workerDriver.discard();
+                webDriver = null;
+            }
             cleanup();
             throw new RuntimeException("Setup failed", e);
         }
     }
-
-    private void printEnvironmentInfo() {
-        System.out.println("=== ENVIRONMENT INFO ===");
-        System.out.println("OS: " + OS_NAME + " (" + OS_ARCH + ")");
-        System.out.println("Architecture: " + (IS_ARM ? "ARM64" : "x86/x64"));
-        System.out.println("Java version: " + System.getProperty("java.version"));
-        System.out.println("Working directory: " + System.getProperty("user.dir"));
-    }
-
-    private BrowserConfig detectBrowserAndDriver() {
-        System.out.println("\n=== BROWSER AND DRIVER DETECTION ===");
-        
-        BrowserConfig projectDriverConfig = checkProjectDriverFolder();
-        if (projectDriverConfig != null) {
-            return projectDriverConfig;
-        }
-        
-        BrowserConfig systemDriverConfig = checkSystemDrivers();
-        if (systemDriverConfig != null) {
-            return systemDriverConfig;
-        }
-        
-        throw new RuntimeException("No compatible browser driver found");
-    }
     
-    private BrowserConfig checkProjectDriverFolder() {
-        File driverFolder = new File("driver");
-        if (!driverFolder.exists() || !driverFolder.isDirectory()) {
-            System.out.println("No 'driver' folder found in project root");
-            return null;
-        }
-        
-        System.out.println("Found 'driver' folder, checking for executables...");
-        
-        String[] edgeDriverNames = IS_WINDOWS ? 
-            new String[]{"msedgedriver.exe", "edgedriver.exe"} :
-            new String[]{"msedgedriver", "edgedriver"};
-            
-        for (String driverName : edgeDriverNames) {
-            File driverFile = new File(driverFolder, driverName);
-            if (driverFile.exists()) {
-                makeExecutable(driverFile);
-                if (driverFile.canExecute()) {
-                    System.out.println("Found Edge driver: " + driverFile.getAbsolutePath());
-                    return new BrowserConfig("edge", driverFile.getAbsolutePath(), findEdgeBinary());
-                }
+    private void runCheck(LabCheck check) {
+        ResultCache cache = ResultCache.shared();
+        File labJs = new File(htmlFile.getAbsoluteFile().getParentFile(), "Lab.js");
+        String cacheKey = cache.key(check.name(), labJs, htmlFile);
+        BatchGrader.CheckResult cached = cache.lookup(cacheKey);
+        if (cached != null) {
+            ResultReporter.report(SUBMISSION_ID, cached, null, true);
+            System.out.println("Using cached result: " + cached);
+            if (!cached.isPassed()) {
+                throw new AssertionError(cached.message + " (cached result)");
             }
+            return;
         }
         
-        String[] chromeDriverNames = IS_WINDOWS ? 
-            new String[]{"chromedriver.exe"} :
-            new String[]{"chromedriver"};
-            
-        for (String driverName : chromeDriverNames) {
-            File driverFile = new File(driverFolder, driverName);
-            if (driverFile.exists()) {
-                makeExecutable(driverFile);
-                if (driverFile.canExecute()) {
-                    System.out.println("Found Chrome driver: " + driverFile.getAbsolutePath());
-                    return new BrowserConfig("chrome", driverFile.getAbsolutePath(), findChromeBinary());
+        loadPage();
+        long start = System.nanoTime();
+        try {
+            try (PhaseMetrics.Span span = PhaseMetrics.span("test." + check.name())) {
+                check.run(labPage);
+            } catch (UnsupportedDomFeatureException e) {
+                if (labPage instanceof BrowserLabPage) {
+                    throw e;
+                }
+                System.out.println("JS engine cannot run " + check.name() + ", retrying in browser: " + e.getMessage());
+                cleanup();
+                setUpBrowser();
+                start = System.nanoTime();
+                try (PhaseMetrics.Span span = PhaseMetrics.span("test." + check.name())) {
+                    check.run(labPage);
                 }
             }
-        }
-        
-        System.out.println("No compatible drivers found in 'driver' folder");
-        return null;
-    }
-    
-    private BrowserConfig checkSystemDrivers() {
-        System.out.println("Checking system-installed drivers...");
-        
-        String[] chromeDriverPaths = {
-            "/usr/bin/chromedriver",
-            "/usr/local/bin/chromedriver",
-            "/snap/bin/chromedriver",
-            System.getProperty("user.home") + "/.cache/selenium/chromedriver/linux64/chromedriver",
-            "/opt/chromedriver/chromedriver"
-        };
-        
-        if (IS_WINDOWS) {
-            chromeDriverPaths = new String[]{
-                "C:\\Program Files\\Google\\Chrome\\Application\\chromedriver.exe",
-                "C:\\ChromeDriver\\chromedriver.exe",
-                "chromedriver.exe"
-            };
-        }
-        
-        for (String driverPath : chromeDriverPaths) {
-            File driverFile = new File(driverPath);
-            if (driverFile.exists() && driverFile.canExecute()) {
-                System.out.println("Found system Chrome driver: " + driverPath);
-                return new BrowserConfig("chrome", driverPath, findChromeBinary());
+            BatchGrader.CheckResult result = new BatchGrader.CheckResult(check.name(),
+                BatchGrader.CheckResult.Outcome.PASSED, null, (System.nanoTime() - start) / 1_000_000);
+            cache.store(cacheKey, result);
+            report(result);
+        } catch (AssertionError | JsEngineLabPage.LabScriptException e) {
+            BatchGrader.CheckResult result = new BatchGrader.CheckResult(check.name(),
+                BatchGrader.CheckResult.Outcome.FAILED, e.getMessage(), (System.nanoTime() - start) / 1_000_000,
+                BatchGrader.CheckResult.isTimeout(e));
+            cache.store(cacheKey, result);
+            if (console != null) {
+                console.attachTo(e);
             }
-        }
-        
-        if (IS_WINDOWS) {
-            String[] edgeDriverPaths = {
-                "C:\\Program Files (x86)\\Microsoft\\Edge\\Application\\msedgedriver.exe",
-                "msedgedriver.exe"
-            };
-            
-            for (String driverPath : edgeDriverPaths) {
-                File driverFile = new File(driverPath);
-                if (driverFile.exists() && driverFile.canExecute()) {
-                    System.out.println("Found system Edge driver: " + driverPath);
-                    return new BrowserConfig("edge", driverPath, findEdgeBinary());
-                }
+            report(result, captureFailure(check, e));
+            throw e;
+        } catch (RuntimeException e) {
+            if (console != null) {
+                console.attachTo(e);
             }
+            report(new BatchGrader.CheckResult(check.name(), BatchGrader.CheckResult.Outcome.ERROR,
+                e.toString(), (System.nanoTime() - start) / 1_000_000), captureFailure(check, e));
+            throw e;
         }
-        
-        return null;
     }
-    
-    private String findChromeBinary() {
-        String[] chromePaths;
-        
-        if (IS_WINDOWS) {
-            chromePaths = new String[]{
-                "C:\\Program Files\\Google\\Chrome\\Application\\chrome.exe",
-                "C:\\Program Files (x86)\\Google\\Chrome\\Application\\chrome.exe"
-            };
-        } else if (IS_MAC) {
-            chromePaths = new String[]{
-                "/Applications/Google Chrome.app/Contents/MacOS/Google Chrome"
-            };
-        } else {
-            chromePaths = new String[]{
-                "/usr/bin/chromium-browser",
-                "/usr/bin/chromium",
-                "/usr/bin/google-chrome",
-                "/snap/bin/chromium"
-            };
-        }
-        
-        for (String path : chromePaths) {
-            if (new File(path).exists()) {
-                System.out.println("Found Chrome binary: " + path);
-                return path;
-            }
+
+    /**
+     * Captures diagnostics for a failed check while its page is still loaded, and returns the page
+     * source read for them so the result line can reuse it.
+     */
+    private String captureFailure(LabCheck check, Throwable failure) {
+        if (!(labPage instanceof BrowserLabPage)) {
+            return null;
         }
-        
-        System.out.println("Chrome binary not found, using default");
-        return null;
+        return FailureDiagnostics.capture(webDriver, getClass().getSimpleName() + "." + check.name(), failure);
     }
-    
-    private String findEdgeBinary() {
-        if (IS_WINDOWS) {
-            String[] edgePaths = {
-                "C:\\Program Files (x86)\\Microsoft\\Edge\\Application\\msedge.exe",
-                "C:\\Program Files\\Microsoft\\Edge\\Application\\msedge.exe"
-            };
-            
-            for (String path : edgePaths) {
-                if (new File(path).exists()) {
-                    System.out.println("Found Edge binary: " + path);
-                    return path;
-                }
-            }
-        }
-        
-        System.out.println("Edge binary not found, using default");
-        return null;
+
+    private void report(BatchGrader.CheckResult result) {
+        report(result, null);
     }
-    
-    private void makeExecutable(File file) {
-        if (!file.canExecute()) {
-            try {
-                file.setExecutable(true);
-                System.out.println("Made executable: " + file.getAbsolutePath());
-            } catch (Exception e) {
-                System.out.println("Could not make executable: " + e.getMessage());
-            }
+
+    private void report(BatchGrader.CheckResult result, String pageSource) {
+        if (labPage instanceof BrowserLabPage) {
+            ResultReporter.report(SUBMISSION_ID, result, webDriver, pageSource);
+        } else {
+            ResultReporter.report(SUBMISSION_ID, result, labPage == null ? null : ResultReporter.JS_ENGINE, false);
         }
     }
-    
-    private File findHtmlFile() {
+
+    private void printEnvironmentInfo() {
+        System.out.println("=== ENVIRONMENT INFO ===");
+        System.out.println("OS: " + OS_NAME + " (" + OS_ARCH + ")");
+        System.out.println("Architecture: " + (IS_ARM ? "ARM64" : "x86/x64"));
+        System.out.println("Java version: " + System.getProperty("java.version"));
+        System.out.println("Working directory: " + System.getProperty("user.dir"));
+    }
+
+    static File findHtmlFile() {
         String[] possibleHtmlPaths = {
             "src/main/index.html",
             "index.html",
@@ -270,284 +223,112 @@ public class SeleniumTest {
     }
     
     private String determineHtmlUrl(File htmlFile) {
-        if (isPython3Available()) {
-            try {
-                return startHttpServer(htmlFile);
-            } catch (Exception e) {
-                System.out.println("HTTP server failed, falling back to file URL: " + e.getMessage());
-            }
-        } else {
-            System.out.println("Python3 not available, using file URL");
-        }
-        
-        return "file://" + htmlFile.getAbsolutePath();
-    }
-    
-    private boolean isPython3Available() {
         try {
-            Process process = new ProcessBuilder("python3", "--version").start();
-            boolean finished = process.waitFor(5, java.util.concurrent.TimeUnit.SECONDS);
-            if (finished && process.exitValue() == 0) {
-                System.out.println("Python3 is available");
-                return true;
-            }
+            return startHttpServer(htmlFile);
         } catch (Exception e) {
-            // Ignore
+            System.out.println("HTTP server failed, falling back to file URL: " + e.getMessage());
         }
         
-        if (IS_WINDOWS) {
-            try {
-                Process process = new ProcessBuilder("python", "--version").start();
-                boolean finished = process.waitFor(5, java.util.concurrent.TimeUnit.SECONDS);
-                if (finished && process.exitValue() == 0) {
-                    System.out.println("Python is available");
-                    return true;
-                }
-            } catch (Exception e) {
-                // Ignore
-            }
-        }
-        
-        System.out.println("Python3/Python not available");
-        return false;
+        return "file://" + htmlFile.getAbsolutePath();
     }
     
     private String startHttpServer(File htmlFile) throws Exception {
-        int port = 8000 + (int)(Math.random() * 1000);
-        String directory = htmlFile.getParent();
-        String fileName = htmlFile.getName();
-        
-        System.out.println("Starting HTTP server on port " + port);
-        
-        String pythonCmd = IS_WINDOWS ? "python" : "python3";
-        ProcessBuilder pb = new ProcessBuilder(pythonCmd, "-m", "http.server", String.valueOf(port));
-        pb.directory(new File(directory));
-        pb.redirectErrorStream(true);
-        
-        httpServerProcess = pb.start();
-        
-        Thread.sleep(3000);
-        
-        if (!httpServerProcess.isAlive()) {
-            throw new RuntimeException("HTTP server failed to start");
-        }
-        
-        String url = "http://localhost:" + port + "/" + fileName;
-        
-        for (int i = 0; i < 10; i++) {
-            try {
-                java.net.URL testUrl = new java.net.URL(url);
-                java.net.HttpURLConnection connection = (java.net.HttpURLConnection) testUrl.openConnection();
-                connection.setConnectTimeout(1000);
-                connection.setReadTimeout(1000);
-                connection.setRequestMethod("HEAD");
-                int responseCode = connection.getResponseCode();
-                connection.disconnect();
-                
-                if (responseCode == 200) {
-                    System.out.println("HTTP server ready: " + url);
-                    return url;
-                }
-            } catch (Exception e) {
-                if (i == 9) {
-                    throw new RuntimeException("HTTP server not responding: " + e.getMessage());
-                }
-                Thread.sleep(1000);
-            }
-        }
-        
-        throw new RuntimeException("HTTP server failed to respond");
+        String baseUrl = StaticFileServer.shared().mount("lab", htmlFile.getAbsoluteFile().getParentFile());
+        String url = baseUrl + htmlFile.getName();
+        System.out.println("HTTP server ready: " + url);
+        return url;
     }
     
-    private WebDriver createWebDriver(BrowserConfig config) {
-        System.out.println("\n=== CREATING WEBDRIVER ===");
-        System.out.println("Browser: " + config.browserType);
-        System.out.println("Driver: " + config.driverPath);
-        System.out.println("Binary: " + config.binaryPath);
-        
-        if ("edge".equals(config.browserType)) {
-            return createEdgeDriver(config);
-        } else {
-            return createChromeDriver(config);
-        }
+    static WebDriverPool sharedDriverPool() {
+        return getDriverPool(BrowserDiscovery.discover());
     }
     
-    private WebDriver createChromeDriver(BrowserConfig config) {
-        System.setProperty("webdriver.chrome.driver", config.driverPath);
-        
-        ChromeOptions options = new ChromeOptions();
-        
-        if (config.binaryPath != null) {
-            options.setBinary(config.binaryPath);
+    private synchronized static WebDriverPool getDriverPool(BrowserConfig config) {
+        if (driverPool == null) {
+            System.out.println("\n=== CREATING WEBDRIVER POOL ===");
+            // Fails now, not on the first lease, when the backend cannot run the pool mode.
+            BrowserBackend.forConfig(config);
+            driverPool = WebDriverPool.fromSystemProperties(
+                () -> PhaseMetrics.time("driver.create", () -> createWebDriver(config)));
+            Runtime.getRuntime().addShutdownHook(new Thread(driverPool::shutdown, "webdriver-pool-shutdown"));
         }
-        
-        options.addArguments(getChromeArguments());
-        
-        LoggingPreferences logPrefs = new LoggingPreferences();
-        logPrefs.enable(LogType.BROWSER, Level.ALL);
-        options.setCapability("goog:loggingPrefs", logPrefs);
-        
-        ChromeDriverService.Builder serviceBuilder = new ChromeDriverService.Builder()
-            .usingDriverExecutable(new File(config.driverPath))
-            .withTimeout(Duration.ofSeconds(30));
-        
-        ChromeDriverService service = serviceBuilder.build();
-        
-        return new ChromeDriver(service, options);
+        return driverPool;
     }
     
-    private WebDriver createEdgeDriver(BrowserConfig config) {
-        System.setProperty("webdriver.edge.driver", config.driverPath);
-        
-        EdgeOptions options = new EdgeOptions();
-        
-        if (config.binaryPath != null) {
-            options.setBinary(config.binaryPath);
-        }
-        
-        options.addArguments(getEdgeArguments());
-        
-        LoggingPreferences logPrefs = new LoggingPreferences();
-        logPrefs.enable(LogType.BROWSER, Level.ALL);
-        options.setCapability("ms:loggingPrefs", logPrefs);
-        
-        EdgeDriverService.Builder serviceBuilder = new EdgeDriverService.Builder()
-            .usingDriverExecutable(new File(config.driverPath))
-            .withTimeout(Duration.ofSeconds(30));
-        
-        EdgeDriverService service = serviceBuilder.build();
+    static WebDriver createWebDriver(BrowserConfig config) {
+        System.out.println("\n=== CREATING WEBDRIVER ===");
+        System.out.println("Browser: " + config.browserType);
+        System.out.println("Driver: " + config.driverPath);
+        System.out.println("Binary: " + config.binaryPath);
         
-        return new EdgeDriver(service, options);
-    }
-    
-    private String[] getChromeArguments() {
-        return getCommonBrowserArguments();
-    }
-    
-    private String[] getEdgeArguments() {
-        return getCommonBrowserArguments();
-    }
-    
-    private String[] getCommonBrowserArguments() {
-        String[] baseArgs = {
-            "--headless=new",
-            "--no-sandbox",
-            "--disable-dev-shm-usage",
-            "--disable-gpu",
-            "--window-size=1920,1080",
-            "--disable-extensions",
-            "--disable-web-security",
-            "--allow-file-access-from-files",
-            "--allow-running-insecure-content",
-            "--user-data-dir=/tmp/browser-test-" + System.currentTimeMillis(),
-            "--disable-features=TranslateUI,VizDisplayCompositor",
-            "--disable-background-timer-throttling",
-            "--disable-backgrounding-occluded-windows",
-            "--disable-renderer-backgrounding"
-        };
+        BrowserBackend backend = BrowserBackend.forConfig(config);
+        System.out.println("Backend: " + backend.name());
+        LaunchProfile launchProfile = LaunchProfile.selected();
+        System.out.println("Launch profile: " + launchProfile);
+        Function<Path, WebDriver> launcher = profile -> backend.launch(config, launchProfile, profile);
         
-        if (IS_ARM) {
-            String[] armArgs = {
-                "--disable-features=VizDisplayCompositor",
-                "--use-gl=swiftshader",
-                "--disable-software-rasterizer"
-            };
-            
-            String[] combined = new String[baseArgs.length + armArgs.length];
-            System.arraycopy(baseArgs, 0, combined, 0, baseArgs.length);
-            System.arraycopy(armArgs, 0, combined, baseArgs.length, armArgs.length);
-            return combined;
+        try {
+            return TimeoutScheduler.retry("driver.create", () -> {
+                try (AdmissionControl.Permit permit = AdmissionControl.acquire()) {
+                    Path profile;
+                    try {
+                        profile = ProfileTemplate.forBrowser(config, launcher).newProfile();
+                    } catch (IOException e) {
+                        throw new RuntimeException("Could not create browser profile directory", e);
+                    }
+                    try {
+                        WebDriver driver = launcher.apply(profile);
+                        BrowserReaper.register(driver, profile);
+                        return driver;
+                    } catch (RuntimeException e) {
+                        BrowserReaper.reap(profile);
+                        throw e;
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while creating WebDriver", e);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
         }
-        
-        return baseArgs;
     }
     
     private void printPageInfo() {
         System.out.println("Page title: " + webDriver.getTitle());
         System.out.println("Current URL: " + webDriver.getCurrentUrl());
-        System.out.println("Page source length: " + webDriver.getPageSource().length());
-    }
-    
-    private void stopHttpServer() {
-        if (httpServerProcess != null) {
-            try {
-                System.out.println("Stopping HTTP server...");
-                httpServerProcess.destroy();
-                
-                boolean terminated = httpServerProcess.waitFor(5, java.util.concurrent.TimeUnit.SECONDS);
-                if (!terminated) {
-                    httpServerProcess.destroyForcibly();
-                }
-                
-                httpServerProcess = null;
-                System.out.println("HTTP server stopped");
-            } catch (Exception e) {
-                System.out.println("Warning: Error stopping HTTP server: " + e.getMessage());
-                try {
-                    httpServerProcess.destroyForcibly();
-                } catch (Exception ignored) {}
-                httpServerProcess = null;
-            }
-        }
     }
     
     private void cleanup() {
-        stopHttpServer();
-        if (webDriver != null) {
-            try {
-                webDriver.quit();
-                webDriver = null;
-            } catch (Exception e) {
-                System.err.println("Error cleaning up WebDriver: " + e.getMessage());
-            }
+        if (labPage != null) {
+            labPage.close();
+            labPage = null;
+        }
+        if (console != null) {
+            console.close();
+            console = null;
         }
+        // The session itself goes back to the pool through WorkerDriverExtension after the test.
+        webDriver = null;
     }
 
-    @After
+    @AfterEach
     public void tearDown() {
         System.out.println("\n=== TEARDOWN ===");
-        cleanup();
+        PhaseMetrics.time("teardown.cleanup", this::cleanup);
         System.out.println("Teardown completed");
     }
 
     @Test
     public void testCreateOnBulb() {
-        WebElement onBulb = wait.until(ExpectedConditions.presenceOfElementLocated(By.id("onBulb")));
-
-        WebElement onButton = webDriver.findElement(By.id("onBulb"));
-        onButton.click();
-
-        WebElement title = webDriver.findElement(By.xpath("//h2[text()='Lightbulb 1']"));
-        WebElement description = webDriver.findElement(By.xpath("//p[contains(text(),'The bulb is')]"));
-
-        assertEquals("Lightbulb 1", title.getText());
-        assertTrue(description.getText().contains("on"));
-        assertFalse(description.getText().contains("off"));
+        runCheck(BulbChecks.CREATE_ON_BULB);
     }
     
     @Test
     public void testCreateOffBulb() {
-        WebElement onButton = webDriver.findElement(By.id("offBulb"));
-        onButton.click();
-
-        WebElement title = webDriver.findElement(By.xpath("//h2[text()='Lightbulb 1']"));
-        WebElement description = webDriver.findElement(By.xpath("//p[contains(text(),'The bulb is')]"));
-
-        assertEquals("Lightbulb 1", title.getText());
-        assertTrue(description.getText().contains("off"));
-        assertFalse(description.getText().contains("on"));
-    }
-    
-    private static class BrowserConfig {
-        final String browserType;
-        final String driverPath;
-        final String binaryPath;
-        
-        BrowserConfig(String browserType, String driverPath, String binaryPath) {
-            this.browserType = browserType;
-            this.driverPath = driverPath;
-            this.binaryPath = binaryPath;
-        }
+        runCheck(BulbChecks.CREATE_OFF_BULB);
     }
 }
 // import static org.junit.Assert.assertEquals;
@@ -0,0 +1,213 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+
+/**
+ * In-process static file server shared by every test in the JVM. Binds an ephemeral loopback port,
+ * so it is ready as soon as the constructor returns, and serves file contents from an in-memory
+ * cache that is refreshed whenever a file's modification time or size changes.
+ */
+public class StaticFileServer {
+    private static StaticFileServer shared;
+
+    private static final Map<String, String> CONTENT_TYPES = Map.of(
+        "html", "text/html; charset=utf-8",
+        "js", "text/javascript; charset=utf-8",
+        "css", "text/css; charset=utf-8",
+        "json", "application/json; charset=utf-8",
+        "png", "image/png",
+        "svg", "image/svg+xml"
+    );
+
+    private final HttpServer server;
+    private final Map<Path, CachedFile> cache = new ConcurrentHashMap<>();
+    private final Map<String, List<Path>> mounts = new ConcurrentHashMap<>();
+
+    private StaticFileServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "static-file-server");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        server.start();
+    }
+
+    public static synchronized StaticFileServer shared() throws IOException {
+        if (shared == null) {
+            try {
+                shared = TimeoutScheduler.retry("server.bind", StaticFileServer::new);
+            } catch (IOException | RuntimeException e) {
+                throw e;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while starting the embedded HTTP server", e);
+            } catch (Exception e) {
+                throw new IOException(e);
+            }
+            System.out.println("Embedded HTTP server listening on port " + shared.getPort());
+            Runtime.getRuntime().addShutdownHook(new Thread(shared::stop, "static-file-server-stop"));
+        }
+        return shared;
+    }
+
+    /**
+     * Starts a private server instance; most callers want {@link #shared()} instead.
+     */
+    public static StaticFileServer start() throws IOException {
+        return new StaticFileServer();
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Serves {@code directories} under {@code /<name>/} and returns the base URL, ending in a slash.
+     * A request is answered from the first directory that contains the file, which lets a submission
+     * folder holding only {@code Lab.js} be layered over the shared lab template.
+     */
+    public String mount(String name, File... directories) {
+        List<Path> roots = new ArrayList<>();
+        for (File directory : directories) {
+            roots.add(directory.toPath().toAbsolutePath().normalize());
+        }
+        mounts.put(name, roots);
+        return "http://localhost:" + getPort() + "/" + name + "/";
+    }
+
+    public void unmount(String name) {
+        List<Path> roots = mounts.remove(name);
+        if (roots != null) {
+            cache.keySet().removeIf(path -> roots.stream().anyMatch(path::startsWith));
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod()) && !"HEAD".equals(exchange.getRequestMethod())) {
+                sendEmpty(exchange, 405);
+                return;
+            }
+
+            CachedFile cached = find(exchange.getRequestURI());
+            if (cached == null) {
+                sendEmpty(exchange, 404);
+                return;
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", cached.contentType);
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, cached.bytes.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(cached.bytes);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Returns the in-memory contents for a request path under one of the mounts, or {@code null} if
+     * nothing is mounted there. Only the path of {@code uri} is used, so URLs on other origins that
+     * mirror this server's layout resolve too.
+     */
+    CachedFile find(URI uri) throws IOException {
+        Path file = resolve(uri);
+        return file == null ? null : load(file);
+    }
+
+    private Path resolve(URI uri) {
+        String path = uri.getPath();
+        if (path == null || path.length() < 2) {
+            return null;
+        }
+        int slash = path.indexOf('/', 1);
+        String name = slash < 0 ? path.substring(1) : path.substring(1, slash);
+        List<Path> roots = mounts.get(name);
+        if (roots == null) {
+            return null;
+        }
+
+        String relative = slash < 0 ? "" : path.substring(slash + 1);
+        for (Path root : roots) {
+            Path file = root.resolve(relative.isEmpty() ? "index.html" : relative).normalize();
+            if (Files.isDirectory(file)) {
+                file = file.resolve("index.html");
+            }
+            if (file.startsWith(root) && Files.isRegularFile(file)) {
+                return file;
+            }
+        }
+        return null;
+    }
+
+    private CachedFile load(Path file) throws IOException {
+        long modified = Files.getLastModifiedTime(file).toMillis();
+        long size = Files.size(file);
+        CachedFile cached = cache.get(file);
+        if (cached == null || cached.modified != modified || cached.bytes.length != size) {
+            cached = new CachedFile(Files.readAllBytes(file), modified, contentTypeOf(file));
+            cache.put(file, cached);
+        }
+        return cached;
+    }
+
+    private static String contentTypeOf(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String extension = dot < 0 ? "" : name.substring(dot + 1).toLowerCase();
+        return CONTENT_TYPES.getOrDefault(extension, "application/octet-stream");
+    }
+
+    private static void sendEmpty(HttpExchange exchange, int status) throws IOException {
+        exchange.sendResponseHeaders(status, -1);
+    }
+
+    static class CachedFile {
+        final byte[] bytes;
+        final long modified;
+        final String contentType;
+        private volatile String base64;
+
+        CachedFile(byte[] bytes, long modified, String contentType) {
+            this.bytes = bytes;
+            this.modified = modified;
+            this.contentType = contentType;
+        }
+
+        /**
+         * The contents as Base64, encoded once per version of the file.
+         */
+        String base64() {
+            String encoded = base64;
+            if (encoded == null) {
+                encoded = Base64.getEncoder().encodeToString(bytes);
+                base64 = encoded;
+            }
+            return encoded;
+        }
+    }
+}
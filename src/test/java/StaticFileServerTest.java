@@ -0,0 +1,118 @@
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Serves a template and a submission layered over it from a private server; no browser needed.
+ */
+public class StaticFileServerTest {
+    @TempDir
+    Path root;
+
+    private StaticFileServer server;
+    private Path template;
+    private Path submission;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        template = Files.createDirectories(root.resolve("template"));
+        submission = Files.createDirectories(root.resolve("submission"));
+        write(template.resolve("index.html"), "<html></html>");
+        write(template.resolve("Lab.js"), "// template");
+        write(template.resolve("style.css"), "body {}");
+        write(template.resolve("data.bin"), "?");
+        write(submission.resolve("Lab.js"), "// submission");
+        write(root.resolve("secret.txt"), "outside every mount");
+        server = StaticFileServer.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    public void answersFromTheFirstMountedDirectoryThatHasTheFile() throws IOException {
+        String base = server.mount("lab", submission.toFile(), template.toFile());
+
+        assertEquals("http://localhost:" + server.getPort() + "/lab/", base);
+        assertEquals("// submission", text(server.find(URI.create(base + "Lab.js"))));
+        assertEquals("body {}", text(server.find(URI.create(base + "style.css"))));
+        assertEquals("<html></html>", text(server.find(URI.create(base))));
+        assertNull(server.find(URI.create(base + "missing.js")));
+        assertNull(server.find(URI.create("http://localhost:" + server.getPort() + "/other/Lab.js")));
+    }
+
+    @Test
+    public void resolvesPathsOnOtherOrigins() throws IOException {
+        server.mount("lab", template.toFile());
+
+        assertEquals("// template", text(server.find(URI.create(PageInjector.ORIGIN + "/lab/Lab.js"))));
+    }
+
+    @Test
+    public void refusesPathsThatLeaveTheMount() throws IOException {
+        String base = server.mount("lab", submission.toFile(), template.toFile());
+
+        assertNull(server.find(URI.create(base + "../secret.txt")));
+        assertNull(server.find(URI.create(base + "%2e%2e/secret.txt")));
+        assertNull(server.find(URI.create(base + "..%2fsecret.txt")));
+        assertEquals(404, get(base + "%2e%2e/secret.txt").getResponseCode());
+        assertEquals(404, get(base + "..%2f..%2fsecret.txt").getResponseCode());
+    }
+
+    @Test
+    public void sendsContentTypeByExtension() throws IOException {
+        String base = server.mount("lab", template.toFile());
+
+        assertEquals("text/html; charset=utf-8", server.find(URI.create(base + "index.html")).contentType);
+        assertEquals("text/javascript; charset=utf-8", server.find(URI.create(base + "Lab.js")).contentType);
+        assertEquals("text/css; charset=utf-8", server.find(URI.create(base + "style.css")).contentType);
+        assertEquals("application/octet-stream", server.find(URI.create(base + "data.bin")).contentType);
+
+        HttpURLConnection connection = get(base + "style.css");
+        assertEquals(200, connection.getResponseCode());
+        assertEquals("text/css; charset=utf-8", connection.getContentType());
+        assertEquals("no-cache", connection.getHeaderField("Cache-Control"));
+        assertEquals("body {}", new String(connection.getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void rereadsChangedFilesAndForgetsUnmountedOnes() throws IOException {
+        String base = server.mount("lab", template.toFile());
+        assertEquals("// template", text(server.find(URI.create(base + "Lab.js"))));
+
+        write(template.resolve("Lab.js"), "// template, edited");
+        assertEquals("// template, edited", text(server.find(URI.create(base + "Lab.js"))));
+
+        server.unmount("lab");
+        assertNull(server.find(URI.create(base + "Lab.js")));
+    }
+
+    private static HttpURLConnection get(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(5_000);
+        connection.setReadTimeout(5_000);
+        return connection;
+    }
+
+    private static String text(StaticFileServer.CachedFile file) {
+        assertNotNull(file);
+        return new String(file.bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,222 @@
+import java.lang.reflect.Method;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WindowType;
+import org.openqa.selenium.chromium.HasCdp;
+import org.openqa.selenium.support.decorators.Decorated;
+import org.openqa.selenium.support.decorators.WebDriverDecorator;
+
+/**
+ * One browser process shared by many tests, each of which gets its own tab. {@link #openTab()} hands
+ * out a WebDriver bound to a single tab: every command first switches the underlying session to that
+ * tab, commands from different tabs are serialized on the session, {@code quit()} and
+ * {@code close()} close only the tab, and {@code getWindowHandles()} only reports the tab itself.
+ *
+ * <p>Each tab is opened in its own browser context ({@code Target.createBrowserContext}), the same
+ * isolation an incognito window gets, so tabs do not share cookies, localStorage or sessionStorage.
+ * Browsers without DevTools commands fall back to plain tabs that share the profile's storage, and
+ * say so once; -Dtabs.isolated=false asks for plain tabs.
+ *
+ * <p>All tabs are driven through one driver session, which executes one command at a time, so
+ * commands from different tabs are serialized and only the browser-side work (page loads, timers,
+ * rendering) overlaps. Tabs save the memory and startup cost of a browser per worker; they do not
+ * make the WebDriver commands themselves run in parallel. That is why this mode is opt-in
+ * (-Ddriver.pool.mode=tabs, or the parallel-tabs Maven profile).
+ */
+public class TabbedBrowser {
+    private static final boolean ISOLATED = Boolean.parseBoolean(System.getProperty("tabs.isolated", "true"));
+    private static final long TAB_DISCOVERY_MILLIS = 2_000;
+
+    private final Supplier<WebDriver> browserFactory;
+    private final Object lock = new Object();
+    private final Set<String> isolatedHandles = new HashSet<>();
+    private WebDriver browser;
+    private String anchorHandle;
+    private String activeHandle;
+    private boolean contextsUnavailable;
+
+    public TabbedBrowser(Supplier<WebDriver> browserFactory) {
+        this.browserFactory = browserFactory;
+    }
+
+    public WebDriver openTab() {
+        synchronized (lock) {
+            if (browser == null || !isAlive()) {
+                restartBrowser();
+            }
+            browser.switchTo().window(anchorHandle);
+            String[] isolated = openIsolatedTab();
+            String handle;
+            String contextId = null;
+            if (isolated != null) {
+                handle = isolated[0];
+                contextId = isolated[1];
+                isolatedHandles.add(handle);
+                browser.switchTo().window(handle);
+            } else {
+                handle = browser.switchTo().newWindow(WindowType.TAB).getWindowHandle();
+            }
+            activeHandle = handle;
+            return new TabDecorator(handle, contextId).decorate(browser);
+        }
+    }
+
+    /**
+     * Whether {@code tab}, a driver from {@link #openTab()}, shares cookies and storage with other
+     * tabs, which is the case unless it was opened in a browser context of its own.
+     */
+    public boolean sharesStorage(WebDriver tab) {
+        String handle = tab.getWindowHandle();
+        synchronized (lock) {
+            return !isolatedHandles.contains(handle);
+        }
+    }
+
+    /**
+     * Opens a tab in a new browser context and returns its window handle and context id, or null
+     * when contexts are unavailable and a plain tab should be opened instead.
+     */
+    private String[] openIsolatedTab() {
+        if (!ISOLATED || contextsUnavailable || !(browser instanceof HasCdp)) {
+            if (ISOLATED && !contextsUnavailable) {
+                contextsUnavailable = true;
+                System.out.println("Browser has no DevTools commands; tabs will share cookies and storage");
+            }
+            return null;
+        }
+        HasCdp cdp = (HasCdp) browser;
+        String contextId = null;
+        try {
+            contextId = String.valueOf(cdp.executeCdpCommand("Target.createBrowserContext", Map.of())
+                .get("browserContextId"));
+            String targetId = String.valueOf(cdp.executeCdpCommand("Target.createTarget",
+                Map.of("url", "about:blank", "browserContextId", contextId)).get("targetId"));
+            // The driver uses DevTools target ids as window handles, but learns about new targets
+            // asynchronously.
+            long deadline = System.currentTimeMillis() + TAB_DISCOVERY_MILLIS;
+            while (!browser.getWindowHandles().contains(targetId)) {
+                if (System.currentTimeMillis() >= deadline) {
+                    throw new IllegalStateException("driver did not report target " + targetId + " as a window");
+                }
+                Thread.sleep(20);
+            }
+            return new String[] {targetId, contextId};
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            disposeContext(contextId);
+            throw new IllegalStateException("Interrupted while opening a tab", e);
+        } catch (RuntimeException e) {
+            disposeContext(contextId);
+            contextsUnavailable = true;
+            System.out.println("Isolated browser contexts unavailable, tabs will share cookies and storage: "
+                + e.getMessage());
+            return null;
+        }
+    }
+
+    private void disposeContext(String contextId) {
+        if (contextId == null || browser == null) {
+            return;
+        }
+        try {
+            ((HasCdp) browser).executeCdpCommand("Target.disposeBrowserContext", Map.of("browserContextId", contextId));
+        } catch (RuntimeException e) {
+            System.err.println("Error disposing browser context " + contextId + ": " + e.getMessage());
+        }
+    }
+
+    public void quit() {
+        synchronized (lock) {
+            if (browser != null) {
+                BrowserReaper.reap(browser);
+                browser = null;
+                isolatedHandles.clear();
+            }
+        }
+    }
+
+    private boolean isAlive() {
+        try {
+            return browser.getWindowHandles().contains(anchorHandle);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private void restartBrowser() {
+        quit();
+        System.out.println("Starting shared browser for tabbed sessions");
+        browser = browserFactory.get();
+        anchorHandle = browser.getWindowHandle();
+        activeHandle = anchorHandle;
+    }
+
+    private class TabDecorator extends WebDriverDecorator<WebDriver> {
+        private final String handle;
+        private final String contextId;
+        private boolean closed;
+
+        /**
+         * @param contextId the tab's own browser context, or null for a tab in the default context
+         */
+        TabDecorator(String handle, String contextId) {
+            this.handle = handle;
+            this.contextId = contextId;
+        }
+
+        @Override
+        public Object call(Decorated<?> target, Method method, Object[] args) throws Throwable {
+            synchronized (lock) {
+                Object original = target.getOriginal();
+                String name = method.getName();
+
+                if (original instanceof WebDriver && ("quit".equals(name) || "close".equals(name))) {
+                    closeTab();
+                    return null;
+                }
+                if (closed || browser == null || original instanceof WebDriver && browser != original) {
+                    throw new IllegalStateException("Tab " + handle + " is closed");
+                }
+                if (original instanceof WebDriver && "getWindowHandles".equals(name)) {
+                    return Set.of(handle);
+                }
+
+                if (!handle.equals(activeHandle)) {
+                    browser.switchTo().window(handle);
+                    activeHandle = handle;
+                }
+                try {
+                    return super.call(target, method, args);
+                } finally {
+                    if (original instanceof WebDriver.TargetLocator) {
+                        activeHandle = null;
+                    }
+                }
+            }
+        }
+
+        private void closeTab() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            isolatedHandles.remove(handle);
+            if (browser == null) {
+                return;
+            }
+            try {
+                browser.switchTo().window(handle);
+                browser.close();
+                browser.switchTo().window(anchorHandle);
+                activeHandle = anchorHandle;
+            } catch (Exception e) {
+                activeHandle = null;
+                System.err.println("Error closing tab " + handle + ": " + e.getMessage());
+            }
+            disposeContext(contextId);
+        }
+    }
+}
@@ -0,0 +1,267 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.BindException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import org.openqa.selenium.SessionNotCreatedException;
+import org.openqa.selenium.TimeoutException;
+
+/**
+ * Timeouts derived from observed latency instead of fixed constants, and retries for failures that
+ * are worth retrying.
+ *
+ * <p>Each phase keeps a rolling window of its last {@value #WINDOW} latencies, persisted across runs
+ * in ~/.cache/selenium-lab/latencies.properties (-Dtimeouts.file). A run that was cut off by its
+ * timeout is recorded too, as a sample of how long it had taken when it was given up on, so a phase
+ * that keeps timing out widens its own timeout. Once a phase has {@value #MIN_SAMPLES} samples its
+ * timeout is the window's p99 times -Dtimeouts.headroom (default 3), kept between the phase's
+ * default and four times it; before that, the default applies. Adaptation therefore only ever
+ * widens timeouts: a loaded node gets longer ones, and no node gets shorter ones than the fixed
+ * timeouts it replaced. -Dtimeouts.adaptive=false restores the defaults.
+ *
+ * <p>{@link #retry} retries only transient failures (a port already bound, a refused or timed-out
+ * connection, a session that could not be created for reasons other than a version mismatch) with
+ * jittered exponential backoff, up to -Dretry.maxAttempts (default 3) attempts. Each retry is
+ * recorded as a {@code retry.<phase>} span in {@link PhaseMetrics}.
+ */
+public final class TimeoutScheduler {
+    static final int WINDOW = 200;
+    static final int MIN_SAMPLES = 20;
+    static final boolean ADAPTIVE = Boolean.parseBoolean(System.getProperty("timeouts.adaptive", "true"));
+    static final double HEADROOM = Double.parseDouble(System.getProperty("timeouts.headroom", "3"));
+    private static final int MAX_ATTEMPTS = Integer.getInteger("retry.maxAttempts", 3);
+    private static final long BASE_BACKOFF_MILLIS = 250;
+    private static final long MAX_BACKOFF_MILLIS = 5_000;
+    private static final Map<String, Window> WINDOWS = new ConcurrentHashMap<>();
+
+    static {
+        if (ADAPTIVE) {
+            load(stateFile());
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (ADAPTIVE) {
+                save(stateFile());
+            }
+        }, "timeout-scheduler-save"));
+    }
+
+    private TimeoutScheduler() {
+    }
+
+    public interface Attempt<T> {
+        T call() throws Exception;
+    }
+
+    /**
+     * The timeout to use for {@code phase}, whose fixed timeout used to be {@code defaultTimeout}.
+     */
+    public static Duration timeout(String phase, Duration defaultTimeout) {
+        Window window = WINDOWS.get(phase);
+        if (!ADAPTIVE || window == null) {
+            return defaultTimeout;
+        }
+        double p99 = window.p99Millis();
+        if (Double.isNaN(p99)) {
+            return defaultTimeout;
+        }
+        return clamp(p99, defaultTimeout);
+    }
+
+    static Duration clamp(double p99Millis, Duration defaultTimeout) {
+        long millis = (long) Math.ceil(p99Millis * HEADROOM);
+        long ceiling = defaultTimeout.toMillis() * 4;
+        return Duration.ofMillis(Math.max(defaultTimeout.toMillis(), Math.min(ceiling, millis)));
+    }
+
+    /**
+     * Records how long a successful run of {@code phase} took.
+     */
+    public static void observe(String phase, long nanos) {
+        WINDOWS.computeIfAbsent(phase, name -> new Window()).add(nanos / 1e6);
+    }
+
+    /**
+     * Records a run of {@code phase} that was cut off by its timeout after {@code nanos}. The true
+     * latency is at least that, so recording it as a sample can only raise the next timeout.
+     */
+    public static void timedOut(String phase, long nanos) {
+        observe(phase, nanos);
+    }
+
+    /**
+     * Drops everything recorded for {@code phase}, so that it is not saved.
+     */
+    static void forget(String phase) {
+        WINDOWS.remove(phase);
+    }
+
+    /**
+     * Runs {@code attempt}, retrying transient failures with jittered backoff, and records the
+     * duration of the successful attempt for {@code phase}.
+     */
+    public static <T> T retry(String phase, Attempt<T> attempt) throws Exception {
+        for (int attemptNumber = 1; ; attemptNumber++) {
+            long start = System.nanoTime();
+            try {
+                T result = attempt.call();
+                observe(phase, System.nanoTime() - start);
+                return result;
+            } catch (Exception e) {
+                if (isTimeout(e)) {
+                    timedOut(phase, System.nanoTime() - start);
+                }
+                if (attemptNumber >= MAX_ATTEMPTS || !isTransient(e)) {
+                    throw e;
+                }
+                long cap = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << (attemptNumber - 1));
+                long backoff = ThreadLocalRandom.current().nextLong(cap / 2, cap + 1);
+                System.out.println("Transient failure in " + phase + " (attempt " + attemptNumber + " of "
+                    + MAX_ATTEMPTS + "), retrying in " + backoff + " ms: " + e.getMessage());
+                PhaseMetrics.record("retry." + phase, backoff * 1_000_000);
+                Thread.sleep(backoff);
+            }
+        }
+    }
+
+    static boolean isTransient(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            String message = String.valueOf(cause.getMessage());
+            if (cause instanceof BindException || cause instanceof ConnectException
+                || cause instanceof SocketTimeoutException || message.contains("Timed out waiting for driver server")) {
+                return true;
+            }
+            if (cause instanceof SessionNotCreatedException) {
+                return !message.contains("only supports") && !message.contains("cannot find");
+            }
+        }
+        return false;
+    }
+
+    private static boolean isTimeout(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TimeoutException || cause instanceof SocketTimeoutException
+                || String.valueOf(cause.getMessage()).contains("Timed out waiting for driver server")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static Path stateFile() {
+        String configured = System.getProperty("timeouts.file");
+        if (configured != null) {
+            return Paths.get(configured);
+        }
+        return Paths.get(System.getProperty("user.home"), ".cache", "selenium-lab", "latencies.properties");
+    }
+
+    /**
+     * Adds the phases recorded in {@code file} to the current ones, replacing phases of the same name.
+     * A phase whose samples do not parse is skipped.
+     */
+    static void load(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        } catch (IOException e) {
+            System.out.println("Ignoring unreadable latency history: " + e.getMessage());
+            return;
+        }
+        for (String phase : properties.stringPropertyNames()) {
+            Window window = new Window();
+            try {
+                for (String sample : properties.getProperty(phase).split(",")) {
+                    if (!sample.isEmpty()) {
+                        window.add(Double.parseDouble(sample));
+                    }
+                }
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            WINDOWS.put(phase, window);
+        }
+    }
+
+    /**
+     * Writes every phase's window to {@code file}, oldest sample first.
+     */
+    static void save(Path file) {
+        if (WINDOWS.isEmpty()) {
+            return;
+        }
+        Properties properties = new Properties();
+        for (Map.Entry<String, Window> entry : new TreeMap<>(WINDOWS).entrySet()) {
+            properties.setProperty(entry.getKey(), entry.getValue().serialize());
+        }
+        Path target = file.toAbsolutePath();
+        try {
+            Files.createDirectories(target.getParent());
+            Path temp = Files.createTempFile(target.getParent(), "latencies", ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                properties.store(out, "Observed phase latencies in ms, most recent last");
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Could not save latency history: " + e.getMessage());
+        }
+    }
+
+    /**
+     * The last {@value #WINDOW} samples of one phase, in milliseconds.
+     */
+    private static final class Window {
+        private final double[] samples = new double[WINDOW];
+        private int count;
+        private int next;
+
+        synchronized void add(double millis) {
+            samples[next] = millis;
+            next = (next + 1) % WINDOW;
+            count = Math.min(count + 1, WINDOW);
+        }
+
+        synchronized double p99Millis() {
+            if (count < MIN_SAMPLES) {
+                return Double.NaN;
+            }
+            double[] sorted = Arrays.copyOf(ordered(), count);
+            Arrays.sort(sorted);
+            return sorted[Math.max(0, (int) Math.ceil(0.99 * count) - 1)];
+        }
+
+        synchronized String serialize() {
+            StringBuilder out = new StringBuilder();
+            for (double sample : ordered()) {
+                if (out.length() > 0) {
+                    out.append(',');
+                }
+                out.append(Math.round(sample * 1000) / 1000.0);
+            }
+            return out.toString();
+        }
+
+        private double[] ordered() {
+            double[] ordered = new double[count];
+            int start = count < WINDOW ? 0 : next;
+            for (int i = 0; i < count; i++) {
+                ordered[i] = samples[(start + i) % WINDOW];
+            }
+            return ordered;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.BindException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openqa.selenium.SessionNotCreatedException;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks how observed latencies turn into timeouts. Every test records under phases of its own,
+ * which are forgotten afterwards so they never reach the latency history of the machine running
+ * the tests.
+ */
+public class TimeoutSchedulerTest {
+    private static final Duration DEFAULT = Duration.ofMillis(100);
+    private static final long MILLIS = 1_000_000;
+
+    @TempDir
+    Path root;
+
+    private final List<String> phases = new ArrayList<>();
+
+    @AfterEach
+    public void forgetPhases() {
+        phases.forEach(TimeoutScheduler::forget);
+    }
+
+    @Test
+    public void clampKeepsTimeoutsBetweenTheDefaultAndFourTimesIt() {
+        Duration defaultTimeout = Duration.ofSeconds(1);
+
+        assertEquals(defaultTimeout, TimeoutScheduler.clamp(0, defaultTimeout));
+        assertEquals(defaultTimeout, TimeoutScheduler.clamp(1, defaultTimeout));
+        assertEquals(Duration.ofSeconds(4), TimeoutScheduler.clamp(1_000_000, defaultTimeout));
+        double p99 = 2_000 / TimeoutScheduler.HEADROOM;
+        assertEquals(Duration.ofMillis((long) Math.ceil(p99 * TimeoutScheduler.HEADROOM)),
+            TimeoutScheduler.clamp(p99, defaultTimeout));
+    }
+
+    @Test
+    public void usesTheDefaultUntilEnoughSamplesAreRecorded() {
+        assumeAdaptive();
+        String phase = phase("warmup");
+        for (int i = 1; i < TimeoutScheduler.MIN_SAMPLES; i++) {
+            TimeoutScheduler.observe(phase, 300 * MILLIS);
+        }
+        assertEquals(DEFAULT, TimeoutScheduler.timeout(phase, DEFAULT));
+        assertEquals(DEFAULT, TimeoutScheduler.timeout(phase("unknown"), DEFAULT));
+
+        TimeoutScheduler.observe(phase, 300 * MILLIS);
+        assertEquals(TimeoutScheduler.clamp(300, DEFAULT), TimeoutScheduler.timeout(phase, DEFAULT));
+    }
+
+    @Test
+    public void derivesTheTimeoutFromThe99thPercentile() {
+        assumeAdaptive();
+        String phase = phase("percentile");
+        for (int millis = 100; millis >= 1; millis--) {
+            TimeoutScheduler.observe(phase, millis * MILLIS);
+        }
+
+        assertEquals(TimeoutScheduler.clamp(99, DEFAULT), TimeoutScheduler.timeout(phase, DEFAULT));
+    }
+
+    @Test
+    public void forgetsSamplesThatLeftTheWindow() {
+        assumeAdaptive();
+        String phase = phase("window");
+        for (int i = 0; i < TimeoutScheduler.WINDOW; i++) {
+            TimeoutScheduler.observe(phase, 10_000 * MILLIS);
+        }
+        assertEquals(DEFAULT.multipliedBy(4), TimeoutScheduler.timeout(phase, DEFAULT));
+
+        for (int i = 0; i < TimeoutScheduler.WINDOW; i++) {
+            TimeoutScheduler.observe(phase, 1 * MILLIS);
+        }
+        assertEquals(TimeoutScheduler.clamp(1, DEFAULT), TimeoutScheduler.timeout(phase, DEFAULT));
+    }
+
+    @Test
+    public void timedOutRunsWidenTheTimeout() {
+        assumeAdaptive();
+        String phase = phase("censored");
+        for (int i = 0; i < TimeoutScheduler.MIN_SAMPLES; i++) {
+            TimeoutScheduler.observe(phase, 10 * MILLIS);
+        }
+        Duration before = TimeoutScheduler.timeout(phase, DEFAULT);
+
+        TimeoutScheduler.timedOut(phase, 1_000 * MILLIS);
+
+        Duration after = TimeoutScheduler.timeout(phase, DEFAULT);
+        assertTrue(after.compareTo(before) > 0, before + " -> " + after);
+        assertEquals(TimeoutScheduler.clamp(1_000, DEFAULT), after);
+    }
+
+    @Test
+    public void savesAndLoadsTheLatencyHistory() throws IOException {
+        assumeAdaptive();
+        String saved = phase("saved");
+        TimeoutScheduler.observe(saved, 1_500_000);
+        TimeoutScheduler.observe(saved, 2 * MILLIS);
+        Path file = root.resolve("cache").resolve("latencies.properties");
+
+        TimeoutScheduler.save(file);
+
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        }
+        assertEquals("1.5,2.0", properties.getProperty(saved));
+
+        String loaded = phase("loaded");
+        String malformed = phase("malformed");
+        StringBuilder samples = new StringBuilder();
+        for (int i = 0; i < TimeoutScheduler.MIN_SAMPLES; i++) {
+            samples.append(i == 0 ? "" : ",").append(250);
+        }
+        Path history = root.resolve("history.properties");
+        Files.write(history, (loaded + "=" + samples + "\n" + malformed + "=" + samples + ",abc\n")
+            .getBytes(StandardCharsets.ISO_8859_1));
+
+        TimeoutScheduler.load(history);
+
+        assertEquals(TimeoutScheduler.clamp(250, DEFAULT), TimeoutScheduler.timeout(loaded, DEFAULT));
+        assertEquals(DEFAULT, TimeoutScheduler.timeout(malformed, DEFAULT));
+    }
+
+    @Test
+    public void retriesOnlyTransientFailures() {
+        assertTrue(TimeoutScheduler.isTransient(new RuntimeException(new BindException("Address already in use"))));
+        assertTrue(TimeoutScheduler.isTransient(new SessionNotCreatedException("Could not start a new session")));
+        assertFalse(TimeoutScheduler.isTransient(new SessionNotCreatedException(
+            "This version of ChromeDriver only supports Chrome version 114")));
+        assertFalse(TimeoutScheduler.isTransient(new IllegalStateException("no browser")));
+    }
+
+    private static void assumeAdaptive() {
+        Assumptions.assumeTrue(TimeoutScheduler.ADAPTIVE, "Adaptive timeouts are off (-Dtimeouts.adaptive=false)");
+    }
+
+    private String phase(String name) {
+        String phase = "test." + name + "." + System.nanoTime();
+        phases.add(phase);
+        return phase;
+    }
+}
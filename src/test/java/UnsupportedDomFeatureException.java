@@ -0,0 +1,9 @@
+/**
+ * Thrown when a lab uses a DOM feature the embedded JavaScript engine's DOM shim does not implement.
+ * Callers respond by running the check in a real browser instead.
+ */
+public class UnsupportedDomFeatureException extends RuntimeException {
+    public UnsupportedDomFeatureException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
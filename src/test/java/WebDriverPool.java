@@ -0,0 +1,241 @@
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * A fixed-size pool of warm WebDriver sessions. Sessions are leased per test, reset when they are
+ * released, health-checked before they are handed out again, and evicted when they crash, exceed
+ * their lease budget, or are held longer than the leak timeout. Retired sessions are handed to the
+ * {@link BrowserReaper}, so evicting one never blocks the caller on browser shutdown.
+ *
+ * <p>With {@code -Ddriver.pool.mode=tabs} the pooled sessions are tabs of a single browser process
+ * (see {@link TabbedBrowser}), so concurrent tests share one browser instead of one each. Each tab
+ * has its own browser context, but their commands are serialized on the one driver session.
+ */
+public class WebDriverPool {
+    private final Supplier<WebDriver> factory;
+    private final int maxSize;
+    private final int maxLeasesPerSession;
+    private final Duration leakTimeout;
+    private final Predicate<WebDriver> sharesStorage;
+    private final Runnable afterShutdown;
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledDriver> idle = new LinkedBlockingDeque<>();
+    private final Map<WebDriver, PooledDriver> leased = new IdentityHashMap<>();
+    private volatile boolean shutdown;
+
+    public WebDriverPool(Supplier<WebDriver> factory, int maxSize, int maxLeasesPerSession, Duration leakTimeout) {
+        this(factory, maxSize, maxLeasesPerSession, leakTimeout, driver -> false, () -> {});
+    }
+
+    /**
+     * @param sharesStorage true for sessions whose cookies and storage other sessions are still
+     *                      using, such as plain tabs of one browser; resetting them leaves cookies
+     *                      and storage alone
+     */
+    public WebDriverPool(Supplier<WebDriver> factory, int maxSize, int maxLeasesPerSession, Duration leakTimeout,
+                         Predicate<WebDriver> sharesStorage, Runnable afterShutdown) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1, got " + maxSize);
+        }
+        this.factory = factory;
+        this.maxSize = maxSize;
+        this.maxLeasesPerSession = maxLeasesPerSession;
+        this.leakTimeout = leakTimeout;
+        this.sharesStorage = sharesStorage;
+        this.afterShutdown = afterShutdown;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    public static WebDriverPool fromSystemProperties(Supplier<WebDriver> factory) {
+        int size = Integer.getInteger("driver.pool.size", 1);
+        int maxLeases = Integer.getInteger("driver.pool.maxLeases", 50);
+        long leakSeconds = Long.getLong("driver.pool.leakTimeoutSeconds", 300L);
+        if ("tabs".equalsIgnoreCase(System.getProperty("driver.pool.mode", "browsers"))) {
+            TabbedBrowser browser = new TabbedBrowser(factory);
+            return new WebDriverPool(browser::openTab, size, maxLeases, Duration.ofSeconds(leakSeconds),
+                browser::sharesStorage, browser::quit);
+        }
+        return new WebDriverPool(factory, size, maxLeases, Duration.ofSeconds(leakSeconds));
+    }
+
+    public WebDriver lease(Duration timeout) throws InterruptedException {
+        return lease(timeout, null);
+    }
+
+    /**
+     * Leases a session, handing back {@code preferred} if it is idle and healthy. Callers that pass
+     * the session they released last keep working with the same browser while the pool is not
+     * contended.
+     */
+    public WebDriver lease(Duration timeout, WebDriver preferred) throws InterruptedException {
+        if (shutdown) {
+            throw new IllegalStateException("WebDriver pool has been shut down");
+        }
+        reclaimLeakedSessions();
+        if (!permits.tryAcquire(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            throw new IllegalStateException("Timed out after " + timeout.getSeconds()
+                + "s waiting for a WebDriver session (pool size " + maxSize + ")");
+        }
+
+        try {
+            PooledDriver pooled = preferred == null ? null : takeIdle(preferred);
+            if (pooled != null && !isHealthy(pooled)) {
+                System.out.println("Evicting unhealthy WebDriver session");
+                quitQuietly(pooled.driver);
+                pooled = null;
+            }
+            while (pooled == null && (pooled = idle.pollFirst()) != null) {
+                if (!isHealthy(pooled)) {
+                    System.out.println("Evicting unhealthy WebDriver session");
+                    quitQuietly(pooled.driver);
+                    pooled = null;
+                }
+            }
+            if (pooled == null) {
+                System.out.println("Starting new pooled WebDriver session");
+                pooled = new PooledDriver(factory.get());
+            } else {
+                System.out.println("Reusing warm WebDriver session (lease " + (pooled.leaseCount + 1) + ")");
+            }
+
+            pooled.leaseCount++;
+            pooled.leasedAt = System.nanoTime();
+            synchronized (leased) {
+                leased.put(pooled.driver, pooled);
+            }
+            return pooled.driver;
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    public void release(WebDriver driver) {
+        PooledDriver pooled = removeLease(driver);
+        if (pooled == null) {
+            return;
+        }
+        try {
+            if (shutdown || pooled.leaseCount >= maxLeasesPerSession || !reset(pooled.driver)) {
+                quitQuietly(pooled.driver);
+            } else {
+                idle.offerFirst(pooled);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    public void evict(WebDriver driver) {
+        PooledDriver pooled = removeLease(driver);
+        quitQuietly(driver);
+        if (pooled != null) {
+            permits.release();
+        }
+    }
+
+    public void shutdown() {
+        shutdown = true;
+        List<WebDriver> toQuit = new ArrayList<>();
+        PooledDriver pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            toQuit.add(pooled.driver);
+        }
+        synchronized (leased) {
+            toQuit.addAll(leased.keySet());
+            leased.clear();
+        }
+        for (WebDriver driver : toQuit) {
+            quitQuietly(driver);
+        }
+        afterShutdown.run();
+    }
+
+    private PooledDriver takeIdle(WebDriver driver) {
+        for (PooledDriver pooled : idle) {
+            if (pooled.driver == driver && idle.remove(pooled)) {
+                return pooled;
+            }
+        }
+        return null;
+    }
+
+    private PooledDriver removeLease(WebDriver driver) {
+        synchronized (leased) {
+            return leased.remove(driver);
+        }
+    }
+
+    private void reclaimLeakedSessions() {
+        long now = System.nanoTime();
+        List<WebDriver> leaked = new ArrayList<>();
+        synchronized (leased) {
+            for (PooledDriver pooled : leased.values()) {
+                if (now - pooled.leasedAt > leakTimeout.toNanos()) {
+                    leaked.add(pooled.driver);
+                }
+            }
+        }
+        for (WebDriver driver : leaked) {
+            System.out.println("Evicting WebDriver session leased for longer than " + leakTimeout.getSeconds() + "s");
+            evict(driver);
+        }
+    }
+
+    private boolean isHealthy(PooledDriver pooled) {
+        try {
+            pooled.driver.getWindowHandle();
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private boolean reset(WebDriver driver) {
+        try {
+            List<String> handles = new ArrayList<>(driver.getWindowHandles());
+            for (int i = 1; i < handles.size(); i++) {
+                driver.switchTo().window(handles.get(i)).close();
+            }
+            driver.switchTo().window(handles.get(0));
+
+            if (!sharesStorage.test(driver)) {
+                try {
+                    ((JavascriptExecutor) driver).executeScript(
+                        "try { window.localStorage.clear(); } catch (e) {}"
+                        + "try { window.sessionStorage.clear(); } catch (e) {}");
+                } catch (Exception ignored) {}
+                driver.manage().deleteAllCookies();
+            }
+            driver.get("about:blank");
+            return true;
+        } catch (Exception e) {
+            System.out.println("Could not reset WebDriver session, evicting: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static void quitQuietly(WebDriver driver) {
+        BrowserReaper.reap(driver);
+    }
+
+    private static class PooledDriver {
+        final WebDriver driver;
+        int leaseCount;
+        long leasedAt;
+
+        PooledDriver(WebDriver driver) {
+            this.driver = driver;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+import java.time.Duration;
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.ParameterContext;
+import org.junit.jupiter.api.extension.ParameterResolver;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Injects pooled WebDriver sessions into tests that run concurrently. A parameter of type
+ * {@link WorkerDriver} is a lazy handle that leases a session only when the test first asks for one,
+ * so tests answered from the result cache or run in the JS engine launch nothing; a
+ * {@link WebDriver} parameter is leased up front.
+ *
+ * <p>Each JUnit worker thread remembers the session it used last and asks the pool for it again,
+ * so with as many workers as pooled sessions every worker keeps its own browser. The session goes
+ * back to the pool after each test, so other pool users are never starved.
+ */
+public class WorkerDriverExtension implements ParameterResolver, AfterEachCallback {
+    private static final Duration LEASE_TIMEOUT = Duration.ofSeconds(60);
+    private static final ThreadLocal<WebDriver> LAST_DRIVER = new ThreadLocal<>();
+    private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(WorkerDriverExtension.class);
+
+    @Override
+    public boolean supportsParameter(ParameterContext parameterContext, ExtensionContext extensionContext) {
+        Class<?> type = parameterContext.getParameter().getType();
+        return type == WorkerDriver.class || type == WebDriver.class;
+    }
+
+    @Override
+    public Object resolveParameter(ParameterContext parameterContext, ExtensionContext extensionContext) {
+        WorkerDriver driver = extensionContext.getStore(NAMESPACE)
+            .getOrComputeIfAbsent(WorkerDriver.class, key -> new WorkerDriver(), WorkerDriver.class);
+        return parameterContext.getParameter().getType() == WebDriver.class ? driver.get() : driver;
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) {
+        WorkerDriver driver = context.getStore(NAMESPACE).remove(WorkerDriver.class, WorkerDriver.class);
+        if (driver != null) {
+            driver.release();
+        }
+    }
+
+    /**
+     * The session the current test has leased, or null if it has not leased one (or discarded it).
+     */
+    static WebDriver leasedDriver(ExtensionContext context) {
+        WorkerDriver driver = context.getStore(NAMESPACE).get(WorkerDriver.class, WorkerDriver.class);
+        return driver == null ? null : driver.leased();
+    }
+
+    /**
+     * The session of one test, leased on first use and returned to the pool after the test.
+     */
+    public static class WorkerDriver {
+        private WebDriver driver;
+
+        public synchronized WebDriver get() {
+            if (driver == null) {
+                try {
+                    driver = SeleniumTest.sharedDriverPool().lease(LEASE_TIMEOUT, LAST_DRIVER.get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while leasing a WebDriver session", e);
+                }
+                LAST_DRIVER.set(driver);
+            }
+            return driver;
+        }
+
+        synchronized WebDriver leased() {
+            return driver;
+        }
+
+        /**
+         * Evicts the session instead of returning it to the pool, e.g. after a failed setup.
+         */
+        public synchronized void discard() {
+            if (driver != null) {
+                SeleniumTest.sharedDriverPool().evict(driver);
+                LAST_DRIVER.remove();
+                driver = null;
+            }
+        }
+
+        synchronized void release() {
+            if (driver != null) {
+                SeleniumTest.sharedDriverPool().release(driver);
+                driver = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,779 @@
+/*
+ * Minimal in-memory DOM used by JsEngineLabPage to run lab scripts without a browser. It covers the
+ * parts of the DOM the labs use (element creation and lookup, text, bubbling click handlers, simple
+ * selectors, node lists, MutationObserver and timers). Touching anything else, including Array
+ * methods on a node list, throws an UnsupportedDomFeature error, which makes the harness fall back
+ * to a real browser.
+ */
+(function (global) {
+    'use strict';
+
+    var UNSUPPORTED = 'UnsupportedDomFeature: ';
+    var VOID_ELEMENTS = ['area', 'base', 'br', 'col', 'embed', 'hr', 'img', 'input', 'link', 'meta', 'source', 'track', 'wbr'];
+    var PASS_THROUGH = ['then', 'toJSON', 'constructor', 'valueOf', 'toString', 'inspect', 'nodeType'];
+
+    var unsupportedFeature = null;
+
+    function unsupported(what) {
+        unsupportedFeature = unsupportedFeature || what;
+        var error = new Error(UNSUPPORTED + what);
+        error.name = 'UnsupportedDomFeature';
+        throw error;
+    }
+
+    function guard(object, kind) {
+        return new Proxy(object, {
+            get: function (target, property, receiver) {
+                if (typeof property === 'symbol' || property in target || PASS_THROUGH.indexOf(property) >= 0) {
+                    return Reflect.get(target, property, receiver);
+                }
+                unsupported(kind + '.' + property);
+            }
+        });
+    }
+
+    // ---- mutation observers -------------------------------------------------------------------
+
+    var observers = [];
+    var notifyScheduled = false;
+
+    function mutated() {
+        if (notifyScheduled || observers.length === 0) {
+            return;
+        }
+        notifyScheduled = true;
+        Promise.resolve().then(function () {
+            notifyScheduled = false;
+            observers.slice().forEach(function (observer) {
+                observer.callback([], observer);
+            });
+        });
+    }
+
+    function MutationObserver(callback) {
+        this.callback = callback;
+    }
+    MutationObserver.prototype.observe = function () {
+        if (observers.indexOf(this) < 0) {
+            observers.push(this);
+        }
+    };
+    MutationObserver.prototype.disconnect = function () {
+        var index = observers.indexOf(this);
+        if (index >= 0) {
+            observers.splice(index, 1);
+        }
+    };
+    MutationObserver.prototype.takeRecords = function () {
+        return [];
+    };
+
+    // ---- events -------------------------------------------------------------------------------
+
+    function EventTarget() {
+        this.listeners = {};
+    }
+    // Events bubble from the target through its ancestors to the document and on to the window, as
+    // in a browser; there is no capture phase, so capturing listeners are unsupported.
+    EventTarget.prototype.addEventListener = function (type, listener, options) {
+        if (options === true || (options && typeof options === 'object' && options.capture)) {
+            unsupported('capture-phase event listeners');
+        }
+        var self = this;
+        var registered = listener;
+        if (options && typeof options === 'object' && options.once) {
+            registered = function (event) {
+                self.removeEventListener(type, listener);
+                return listener.call(this, event);
+            };
+            registered.original = listener;
+        }
+        (this.listeners[type] = this.listeners[type] || []).push(registered);
+    };
+    EventTarget.prototype.removeEventListener = function (type, listener) {
+        var list = this.listeners[type] || [];
+        for (var i = 0; i < list.length; i++) {
+            if (list[i] === listener || list[i].original === listener) {
+                list.splice(i, 1);
+                return;
+            }
+        }
+    };
+    EventTarget.prototype.dispatchEvent = function (event) {
+        event.target = event.target || this;
+        var path = [this];
+        if (event.bubbles) {
+            for (var node = this.parentNode; node; node = node.parentNode) {
+                path.push(node);
+            }
+            if (path[path.length - 1] === document) {
+                path.push(window);
+            }
+        }
+        for (var i = 0; i < path.length && !event.propagationStopped; i++) {
+            event.eventPhase = i === 0 ? 2 : 3;
+            invokeListeners(path[i], event);
+        }
+        event.currentTarget = null;
+        return !event.defaultPrevented;
+    };
+
+    function invokeListeners(target, event) {
+        event.currentTarget = target;
+        var handler = ('on' + event.type) in target ? target['on' + event.type] : null;
+        var listeners = (target.listeners[event.type] || []).slice();
+        if (typeof handler === 'function') {
+            listeners.unshift(handler);
+        }
+        for (var i = 0; i < listeners.length && !event.immediatePropagationStopped; i++) {
+            try {
+                listeners[i].call(target, event);
+            } catch (e) {
+                if (isUnsupported(e)) {
+                    throw e;
+                }
+                reportError(e);
+            }
+        }
+    }
+
+    function makeEvent(type, properties) {
+        var event = {
+            type: type,
+            bubbles: false,
+            defaultPrevented: false,
+            propagationStopped: false,
+            immediatePropagationStopped: false,
+            preventDefault: function () { this.defaultPrevented = true; },
+            stopPropagation: function () { this.propagationStopped = true; },
+            stopImmediatePropagation: function () {
+                this.propagationStopped = true;
+                this.immediatePropagationStopped = true;
+            }
+        };
+        Object.keys(properties || {}).forEach(function (key) {
+            event[key] = properties[key];
+        });
+        return event;
+    }
+
+    function isUnsupported(e) {
+        return e && typeof e.message === 'string' && e.message.indexOf(UNSUPPORTED) === 0;
+    }
+
+    function reportError(e) {
+        var message = e && e.name && e.message ? e.name + ': ' + e.message : String(e);
+        window.dispatchEvent(makeEvent('error', {message: 'Uncaught ' + message, error: e}));
+    }
+
+    // ---- node lists ---------------------------------------------------------------------------
+
+    // Stand-ins for NodeList and HTMLCollection: indexable, iterable and with item(), but without
+    // Array methods, as in a browser. Lab code calling map or filter on one would throw there, so
+    // asking for any other member is unsupported and the check falls back to a browser. A live list
+    // reads its nodes again on every access.
+
+    var lists = new WeakSet();
+
+    function NodeList() {}
+    NodeList.prototype.item = function (index) {
+        return this.__nodes()[index] || null;
+    };
+    NodeList.prototype.forEach = function (callback, thisArg) {
+        var list = this;
+        this.__nodes().slice().forEach(function (node, index) { callback.call(thisArg, node, index, list); });
+    };
+    NodeList.prototype.entries = function () { return this.__nodes().slice().entries(); };
+    NodeList.prototype.keys = function () { return this.__nodes().slice().keys(); };
+    NodeList.prototype.values = function () { return this.__nodes().slice().values(); };
+    NodeList.prototype[Symbol.iterator] = NodeList.prototype.values;
+
+    function HTMLCollection() {}
+    HTMLCollection.prototype.item = NodeList.prototype.item;
+    HTMLCollection.prototype.namedItem = function (name) {
+        return this.__nodes().filter(function (element) {
+            return element.id === String(name) || element.getAttribute('name') === String(name);
+        })[0] || null;
+    };
+    HTMLCollection.prototype[Symbol.iterator] = NodeList.prototype.values;
+
+    function isIndex(property) {
+        return typeof property === 'string' && /^(0|[1-9]\d*)$/.test(property);
+    }
+
+    function nodeList(type, read) {
+        var target = Object.create(type.prototype);
+        Object.defineProperty(target, '__nodes', {value: read});
+        var list = new Proxy(target, {
+            get: function (target, property, receiver) {
+                if (property === 'length') {
+                    return read().length;
+                }
+                if (isIndex(property)) {
+                    return read()[property];
+                }
+                if (typeof property === 'symbol' || property in target || PASS_THROUGH.indexOf(property) >= 0) {
+                    return Reflect.get(target, property, receiver);
+                }
+                unsupported(type.name + '.' + property);
+            },
+            has: function (target, property) {
+                if (property === 'length') {
+                    return true;
+                }
+                if (isIndex(property)) {
+                    return Number(property) < read().length;
+                }
+                return property in target;
+            }
+        });
+        lists.add(list);
+        return list;
+    }
+
+    function staticList(nodes) {
+        return nodeList(NodeList, function () { return nodes; });
+    }
+
+    // ---- nodes --------------------------------------------------------------------------------
+
+    function Node(nodeType) {
+        EventTarget.call(this);
+        this.nodeType = nodeType;
+        this.parentNode = null;
+        this.nodes = [];
+    }
+    Node.prototype = Object.create(EventTarget.prototype);
+
+    Object.defineProperty(Node.prototype, 'textContent', {
+        get: function () {
+            return this.nodes.map(function (child) { return child.textContent; }).join('');
+        },
+        set: function (value) {
+            this.nodes.forEach(function (child) { child.parentNode = null; });
+            this.nodes = [];
+            if (value !== null && value !== undefined && String(value) !== '') {
+                this.appendChild(new Text(String(value)));
+            } else {
+                mutated();
+            }
+        }
+    });
+    Object.defineProperty(Node.prototype, 'childNodes', {
+        get: function () {
+            var node = this;
+            return nodeList(NodeList, function () { return node.nodes; });
+        }
+    });
+    Object.defineProperty(Node.prototype, 'firstChild', {
+        get: function () { return this.nodes[0] || null; }
+    });
+    Object.defineProperty(Node.prototype, 'lastChild', {
+        get: function () { return this.nodes[this.nodes.length - 1] || null; }
+    });
+    Object.defineProperty(Node.prototype, 'parentElement', {
+        get: function () { return this.parentNode && this.parentNode.nodeType === 1 ? this.parentNode : null; }
+    });
+
+    Node.prototype.appendChild = function (child) {
+        return this.insertBefore(child, null);
+    };
+    Node.prototype.insertBefore = function (child, reference) {
+        if (!(child instanceof Node)) {
+            unsupported('appendChild of a non-node');
+        }
+        if (child.parentNode) {
+            child.parentNode.removeChild(child);
+        }
+        var index = reference ? this.nodes.indexOf(reference) : -1;
+        if (index < 0) {
+            this.nodes.push(child);
+        } else {
+            this.nodes.splice(index, 0, child);
+        }
+        child.parentNode = this;
+        mutated();
+        return child;
+    };
+    Node.prototype.removeChild = function (child) {
+        var index = this.nodes.indexOf(child);
+        if (index < 0) {
+            throw new Error('NotFoundError: The node to be removed is not a child of this node.');
+        }
+        this.nodes.splice(index, 1);
+        child.parentNode = null;
+        mutated();
+        return child;
+    };
+    Node.prototype.append = function () {
+        for (var i = 0; i < arguments.length; i++) {
+            var item = arguments[i];
+            this.appendChild(item instanceof Node ? item : new Text(String(item)));
+        }
+    };
+    Node.prototype.remove = function () {
+        if (this.parentNode) {
+            this.parentNode.removeChild(this);
+        }
+    };
+    Node.prototype.contains = function (other) {
+        for (var node = other; node; node = node.parentNode) {
+            if (node === this) {
+                return true;
+            }
+        }
+        return false;
+    };
+
+    function Text(data) {
+        Node.call(this, 3);
+        this.data = data;
+        this.nodeName = '#text';
+        return guard(this, 'Text');
+    }
+    Text.prototype = Object.create(Node.prototype);
+    Object.defineProperty(Text.prototype, 'textContent', {
+        get: function () { return this.data; },
+        set: function (value) { this.data = String(value); mutated(); }
+    });
+    Object.defineProperty(Text.prototype, 'nodeValue', {
+        get: function () { return this.data; },
+        set: function (value) { this.data = String(value); mutated(); }
+    });
+
+    function Element(tagName) {
+        Node.call(this, 1);
+        this.localName = tagName.toLowerCase();
+        this.tagName = tagName.toUpperCase();
+        this.nodeName = this.tagName;
+        this.attributes = {};
+        this.style = {};
+        this.onclick = null;
+        this.value = '';
+        this.disabled = false;
+        return guard(this, '<' + this.localName + '>');
+    }
+    Element.prototype = Object.create(Node.prototype);
+
+    ['id', 'className', 'name', 'type', 'href', 'src'].forEach(function (property) {
+        var attribute = property === 'className' ? 'class' : property;
+        Object.defineProperty(Element.prototype, property, {
+            get: function () { return this.attributes[attribute] || ''; },
+            set: function (value) { this.setAttribute(attribute, value); }
+        });
+    });
+    Object.defineProperty(Element.prototype, 'innerText', {
+        get: function () { return this.textContent; },
+        set: function (value) { this.textContent = value; }
+    });
+    Object.defineProperty(Element.prototype, 'children', {
+        get: function () {
+            var element = this;
+            return nodeList(HTMLCollection, function () {
+                return element.nodes.filter(function (child) { return child.nodeType === 1; });
+            });
+        }
+    });
+    Object.defineProperty(Element.prototype, 'innerHTML', {
+        get: function () { return this.nodes.map(serialize).join(''); },
+        set: function (value) {
+            var self = this;
+            self.textContent = '';
+            parseHtml(String(value), self, null);
+            mutated();
+        }
+    });
+    Object.defineProperty(Element.prototype, 'outerHTML', {
+        get: function () { return serialize(this); }
+    });
+    Object.defineProperty(Element.prototype, 'classList', {
+        get: function () {
+            var element = this;
+            function names() { return element.className.split(/\s+/).filter(Boolean); }
+            return {
+                contains: function (name) { return names().indexOf(name) >= 0; },
+                add: function (name) { if (names().indexOf(name) < 0) { element.className = names().concat([name]).join(' '); } },
+                remove: function (name) { element.className = names().filter(function (n) { return n !== name; }).join(' '); },
+                toggle: function (name) {
+                    var present = names().indexOf(name) >= 0;
+                    if (present) { this.remove(name); } else { this.add(name); }
+                    return !present;
+                }
+            };
+        }
+    });
+
+    Element.prototype.getAttribute = function (name) {
+        return Object.prototype.hasOwnProperty.call(this.attributes, name) ? this.attributes[name] : null;
+    };
+    Element.prototype.setAttribute = function (name, value) {
+        this.attributes[name] = String(value);
+        mutated();
+    };
+    Element.prototype.hasAttribute = function (name) {
+        return Object.prototype.hasOwnProperty.call(this.attributes, name);
+    };
+    Element.prototype.removeAttribute = function (name) {
+        delete this.attributes[name];
+        mutated();
+    };
+    Element.prototype.click = function () {
+        if (!this.disabled) {
+            this.dispatchEvent(makeEvent('click', {target: this, bubbles: true}));
+        }
+    };
+    Element.prototype.querySelectorAll = function (selector) {
+        return staticList(querySelectorAll(this, selector));
+    };
+    Element.prototype.querySelector = function (selector) {
+        return querySelectorAll(this, selector)[0] || null;
+    };
+    Element.prototype.getElementsByTagName = function (tagName) {
+        var root = this;
+        querySelectorAll(root, tagName);
+        return nodeList(HTMLCollection, function () { return querySelectorAll(root, tagName); });
+    };
+
+    function descendants(root) {
+        var result = [];
+        (function walk(node) {
+            node.nodes.forEach(function (child) {
+                if (child.nodeType === 1) {
+                    result.push(child);
+                    walk(child);
+                }
+            });
+        })(root);
+        return result;
+    }
+
+    // ---- selectors ----------------------------------------------------------------------------
+
+    function parseCompound(text) {
+        var compound = {tag: null, id: null, classes: [], attributes: []};
+        var pattern = /^([a-zA-Z][\w-]*|\*)|#([\w-]+)|\.([\w-]+)|\[([\w-]+)(?:=["']?([^"'\]]*)["']?)?\]/g;
+        var consumed = 0;
+        var match;
+        while ((match = pattern.exec(text)) !== null && match.index === consumed) {
+            consumed += match[0].length;
+            if (match[1]) { compound.tag = match[1] === '*' ? null : match[1].toUpperCase(); }
+            if (match[2]) { compound.id = match[2]; }
+            if (match[3]) { compound.classes.push(match[3]); }
+            if (match[4]) { compound.attributes.push({name: match[4], value: match[5]}); }
+        }
+        if (consumed !== text.length || text.length === 0) {
+            unsupported('selector "' + text + '"');
+        }
+        return compound;
+    }
+
+    function matchesCompound(element, compound) {
+        if (compound.tag && element.tagName !== compound.tag) { return false; }
+        if (compound.id && element.id !== compound.id) { return false; }
+        for (var i = 0; i < compound.classes.length; i++) {
+            if (!element.classList.contains(compound.classes[i])) { return false; }
+        }
+        for (var j = 0; j < compound.attributes.length; j++) {
+            var attribute = compound.attributes[j];
+            if (!element.hasAttribute(attribute.name)) { return false; }
+            if (attribute.value !== undefined && element.getAttribute(attribute.name) !== attribute.value) { return false; }
+        }
+        return true;
+    }
+
+    function matchesChain(element, chain, index, scope) {
+        if (!matchesCompound(element, chain[index].compound)) {
+            return false;
+        }
+        if (index === 0) {
+            return true;
+        }
+        var combinator = chain[index].combinator;
+        for (var parent = element.parentNode; parent && parent !== scope && parent.nodeType === 1; parent = parent.parentNode) {
+            if (matchesChain(parent, chain, index - 1, scope)) {
+                return true;
+            }
+            if (combinator === '>') {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    function querySelectorAll(root, selector) {
+        var groups = String(selector).split(',').map(function (group) {
+            var tokens = group.trim().replace(/\s*>\s*/g, ' > ').split(/\s+/);
+            var chain = [];
+            var combinator = ' ';
+            tokens.forEach(function (token) {
+                if (token === '>') {
+                    combinator = '>';
+                } else {
+                    chain.push({compound: parseCompound(token), combinator: combinator});
+                    combinator = ' ';
+                }
+            });
+            return chain;
+        });
+        return descendants(root).filter(function (element) {
+            return groups.some(function (chain) {
+                return matchesChain(element, chain, chain.length - 1, root);
+            });
+        });
+    }
+
+    // ---- html parsing -------------------------------------------------------------------------
+
+    function decodeEntities(text) {
+        return text.replace(/&(amp|lt|gt|quot|apos|nbsp|#\d+|#x[0-9a-f]+);/gi, function (entity, name) {
+            var named = {amp: '&', lt: '<', gt: '>', quot: '"', apos: "'", nbsp: ' '};
+            if (name.charAt(0) !== '#') { return named[name.toLowerCase()]; }
+            return String.fromCharCode(name.charAt(1).toLowerCase() === 'x'
+                ? parseInt(name.substring(2), 16) : parseInt(name.substring(1), 10));
+        });
+    }
+
+    function escapeText(text) {
+        return text.replace(/&/g, '&amp;').replace(/</g, '&lt;').replace(/>/g, '&gt;');
+    }
+
+    function serialize(node) {
+        if (node.nodeType === 3) {
+            return escapeText(node.data);
+        }
+        var attributes = Object.keys(node.attributes).map(function (name) {
+            return ' ' + name + '="' + escapeText(node.attributes[name]).replace(/"/g, '&quot;') + '"';
+        }).join('');
+        var open = '<' + node.localName + attributes + '>';
+        if (VOID_ELEMENTS.indexOf(node.localName) >= 0) {
+            return open;
+        }
+        return open + node.nodes.map(serialize).join('') + '</' + node.localName + '>';
+    }
+
+    function parseHtml(html, root, scripts) {
+        var stack = [root];
+        var tagPattern = /<!--[\s\S]*?-->|<!doctype[^>]*>|<\/([a-zA-Z][\w-]*)\s*>|<([a-zA-Z][\w-]*)((?:\s+[^\s=\/>]+(?:\s*=\s*(?:"[^"]*"|'[^']*'|[^\s>]+))?)*)\s*(\/?)>/gi;
+        var attributePattern = /([^\s=\/>]+)(?:\s*=\s*("[^"]*"|'[^']*'|[^\s>]+))?/g;
+        var position = 0;
+        var match;
+
+        function current() {
+            return stack[stack.length - 1];
+        }
+
+        function addText(text) {
+            if (text.length > 0) {
+                current().appendChild(new Text(decodeEntities(text)));
+            }
+        }
+
+        while ((match = tagPattern.exec(html)) !== null) {
+            addText(html.substring(position, match.index));
+            position = tagPattern.lastIndex;
+
+            if (match[1]) {
+                var closing = match[1].toLowerCase();
+                for (var i = stack.length - 1; i > 0; i--) {
+                    if (stack[i].localName === closing) {
+                        stack.length = i;
+                        break;
+                    }
+                }
+            } else if (match[2]) {
+                var element = new Element(match[2]);
+                var attribute;
+                attributePattern.lastIndex = 0;
+                while ((attribute = attributePattern.exec(match[3] || '')) !== null) {
+                    var value = attribute[2] === undefined ? '' : attribute[2].replace(/^["']|["']$/g, '');
+                    element.attributes[attribute[1].toLowerCase()] = decodeEntities(value);
+                }
+                current().appendChild(element);
+
+                var name = element.localName;
+                if (name === 'script' || name === 'style') {
+                    var end = html.toLowerCase().indexOf('</' + name, position);
+                    end = end < 0 ? html.length : end;
+                    var body = html.substring(position, end);
+                    if (body.length > 0) {
+                        element.appendChild(new Text(body));
+                    }
+                    if (name === 'script' && scripts) {
+                        scripts.push({src: element.getAttribute('src'), text: body});
+                    }
+                    var close = html.indexOf('>', end);
+                    position = close < 0 ? html.length : close + 1;
+                    tagPattern.lastIndex = position;
+                } else if (!match[4] && VOID_ELEMENTS.indexOf(name) < 0) {
+                    stack.push(element);
+                }
+            }
+        }
+        addText(html.substring(position));
+    }
+
+    // ---- document and window ------------------------------------------------------------------
+
+    function Document() {
+        Node.call(this, 9);
+        this.nodeName = '#document';
+        this.readyState = 'loading';
+        return guard(this, 'document');
+    }
+    Document.prototype = Object.create(Node.prototype);
+    Object.defineProperty(Document.prototype, 'documentElement', {
+        get: function () { return this.nodes.filter(function (child) { return child.nodeType === 1; })[0] || null; }
+    });
+    Object.defineProperty(Document.prototype, 'body', {
+        get: function () { return this.querySelector('body'); }
+    });
+    Object.defineProperty(Document.prototype, 'head', {
+        get: function () { return this.querySelector('head'); }
+    });
+    Object.defineProperty(Document.prototype, 'title', {
+        get: function () { var title = this.querySelector('title'); return title ? title.textContent : ''; }
+    });
+    Document.prototype.createElement = function (tagName) {
+        return new Element(String(tagName));
+    };
+    Document.prototype.createTextNode = function (data) {
+        return new Text(String(data));
+    };
+    Document.prototype.getElementById = function (id) {
+        var matches = descendants(this).filter(function (element) { return element.id === String(id); });
+        return matches[0] || null;
+    };
+    Document.prototype.querySelectorAll = Element.prototype.querySelectorAll;
+    Document.prototype.querySelector = Element.prototype.querySelector;
+    Document.prototype.getElementsByTagName = Element.prototype.getElementsByTagName;
+
+    var document = new Document();
+
+    var timers = [];
+    var timerSequence = 0;
+    var virtualNow = 0;
+
+    function schedule(callback, delay, args, repeat) {
+        if (typeof callback !== 'function') {
+            unsupported('string timer callbacks');
+        }
+        var timer = {id: ++timerSequence, callback: callback, args: args, delay: Math.max(0, delay || 0), repeat: repeat};
+        timer.due = virtualNow + timer.delay;
+        timers.push(timer);
+        return timer.id;
+    }
+
+    function cancel(id) {
+        timers = timers.filter(function (timer) { return timer.id !== id; });
+    }
+
+    var window = global;
+    EventTarget.call(window);
+    ['addEventListener', 'removeEventListener', 'dispatchEvent'].forEach(function (method) {
+        window[method] = EventTarget.prototype[method];
+    });
+    window.window = window;
+    window.self = window;
+    window.document = document;
+    window.MutationObserver = MutationObserver;
+    window.Node = Node;
+    window.Element = Element;
+    window.HTMLElement = Element;
+    window.Text = Text;
+    window.NodeList = NodeList;
+    window.HTMLCollection = HTMLCollection;
+    window.onerror = null;
+    window.setTimeout = function (callback, delay) {
+        return schedule(callback, delay, Array.prototype.slice.call(arguments, 2), false);
+    };
+    window.setInterval = function (callback, delay) {
+        return schedule(callback, delay, Array.prototype.slice.call(arguments, 2), true);
+    };
+    window.clearTimeout = cancel;
+    window.clearInterval = cancel;
+    window.queueMicrotask = window.queueMicrotask || function (callback) { Promise.resolve().then(callback); };
+    ['alert', 'confirm', 'prompt', 'fetch', 'XMLHttpRequest', 'localStorage', 'sessionStorage', 'requestAnimationFrame'].forEach(function (name) {
+        Object.defineProperty(window, name, {
+            get: function () { unsupported('window.' + name); },
+            configurable: true
+        });
+    });
+
+    window.__labErrors = [];
+    window.addEventListener('error', function (event) {
+        window.__labErrors.push(String(event.message || event.error));
+    });
+
+    // ---- harness entry points -----------------------------------------------------------------
+
+    var pending = null;
+
+    window.__shim = {
+        unsupportedFeature: function () {
+            return unsupportedFeature;
+        },
+
+        loadDocument: function (html) {
+            var scripts = [];
+            parseHtml(String(html), document, scripts);
+            return JSON.stringify(scripts);
+        },
+
+        reportError: function (message) {
+            window.dispatchEvent(makeEvent('error', {message: String(message)}));
+        },
+
+        finishLoading: function () {
+            document.readyState = 'complete';
+            document.dispatchEvent(makeEvent('DOMContentLoaded', {bubbles: true}));
+            window.dispatchEvent(makeEvent('load'));
+        },
+
+        startAsync: function (script, argumentsJson) {
+            var state = {done: false, result: null};
+            var args = JSON.parse(argumentsJson);
+            args.push(function (result) {
+                if (!state.done) {
+                    state.done = true;
+                    state.result = result === undefined ? null : result;
+                }
+            });
+            pending = state;
+            new Function(script).apply(window, args);
+        },
+
+        pollAsync: function () {
+            if (!pending.done) {
+                return null;
+            }
+            return JSON.stringify({result: pending.result}, function (key, value) {
+                if (value instanceof Node || lists.has(value)) {
+                    unsupported('returning DOM nodes to the harness');
+                }
+                return value;
+            });
+        },
+
+        runNextTimer: function () {
+            if (timers.length === 0) {
+                return false;
+            }
+            timers.sort(function (a, b) { return a.due - b.due || a.id - b.id; });
+            var timer = timers.shift();
+            virtualNow = Math.max(virtualNow, timer.due);
+            if (timer.repeat) {
+                timer.due = virtualNow + Math.max(1, timer.delay);
+                timers.push(timer);
+            }
+            try {
+                timer.callback.apply(window, timer.args);
+            } catch (e) {
+                if (isUnsupported(e)) {
+                    throw e;
+                }
+                reportError(e);
+            }
+            return true;
+        }
+    };
+})(this);